@@ -2,9 +2,14 @@ package im.zego.call;
 
 import android.app.Application;
 import com.blankj.utilcode.util.Utils;
+import com.google.gson.reflect.TypeToken;
 import com.tencent.mmkv.MMKV;
 import im.zego.call.auth.AuthInfoManager;
+import im.zego.call.http.bean.UserBean;
+import im.zego.call.token.ZegoTokenManager;
 import im.zego.callsdk.service.ZegoRoomManager;
+import im.zego.callsdk.utils.ZegoCodecRegistry;
+import java.util.ArrayList;
 
 public class App extends Application {
 
@@ -12,11 +17,22 @@ public class App extends Application {
     public void onCreate() {
         super.onCreate();
         Utils.init(this);
+        // loads on its own thread, the steps that need the appID run once it is loaded
         AuthInfoManager.getInstance().init(this);
 
         MMKV.initialize(this);
+        ZegoTokenManager.getInstance().preload();
 
-        long appID = AuthInfoManager.getInstance().getAppID();
-        ZegoRoomManager.getInstance().init(appID, this);
+        // warmed up by ZegoRoomManager.init, along with the models of the SDK
+        ZegoCodecRegistry.register(UserBean.class, new TypeToken<ArrayList<UserBean>>() {
+        }.getType());
+        // before the first token is minted, whose callback waits for the loading too
+        AuthInfoManager.getInstance().whenLoaded(() -> {
+            long appID = AuthInfoManager.getInstance().getAppID();
+            ZegoRoomManager.getInstance().init(appID, this);
+            // off unless turned on in the settings, it rings the callee while the room is being created
+            ZegoRoomManager.getInstance().userService
+                .setFastDialEnabled(MMKV.defaultMMKV().decodeBool("fastDial", false));
+        });
     }
 }
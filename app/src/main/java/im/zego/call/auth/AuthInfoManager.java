@@ -1,6 +1,8 @@
 package im.zego.call.auth;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
 import com.blankj.utilcode.util.ToastUtils;
@@ -8,11 +10,14 @@ import com.blankj.utilcode.util.ToastUtils;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 
 import im.zego.callsdk.auth.TokenServerAssistant;
 
@@ -31,16 +36,76 @@ public class AuthInfoManager {
     }
 
 
-    private String serverSecret;
-    private long appID;
-
     private static final String TAG = "AuthInfoManager";
 
+    private final CountDownLatch loaded = new CountDownLatch(1);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // the actions waiting for the loading, null once it finished
+    private List<Runnable> loadedActions = new ArrayList<>();
+    private volatile boolean initialized;
+    private volatile String serverSecret;
+    private volatile long appID;
+
+    /**
+     * Get the appID, waiting for {@link #init} to finish loading it if needed.
+     */
     public long getAppID() {
+        awaitLoaded();
         return appID;
     }
 
+    /**
+     * Get the server secret, waiting for {@link #init} to finish loading it if needed.
+     */
+    public String getServerSecret() {
+        awaitLoaded();
+        return serverSecret;
+    }
+
+    /**
+     * Start loading the appID and the server secret from "KeyCenter.json" on a background thread.
+     * <p>
+     * The getters wait for the loading to finish, so they are for background threads. The main thread runs the steps
+     * that need them in {@link #whenLoaded} instead.
+     */
     public void init(Context context) {
+        initialized = true;
+        Context appContext = context.getApplicationContext();
+        new Thread(() -> {
+            try {
+                load(appContext);
+            } finally {
+                List<Runnable> actions;
+                synchronized (this) {
+                    actions = loadedActions;
+                    loadedActions = null;
+                }
+                // posted before the getters are released, so these actions run first on the main thread
+                for (Runnable action : actions) {
+                    mainHandler.post(action);
+                }
+                loaded.countDown();
+            }
+        }, "auth-info").start();
+    }
+
+    /**
+     * Run an action on the main thread once the appID and the server secret are loaded, right away if they are.
+     * <p>
+     * Call this method at: After {@link #init}.
+     */
+    public void whenLoaded(Runnable action) {
+        checkInitialized();
+        synchronized (this) {
+            if (loadedActions != null) {
+                loadedActions.add(action);
+                return;
+            }
+        }
+        mainHandler.post(action);
+    }
+
+    private void load(Context context) {
         String fileJson = readJsonFile(context, "KeyCenter.json");
         if (fileJson == null || fileJson.isEmpty()) {
             ToastUtils.showLong("please check if \"KeyCenter.json\" file is existed.");
@@ -60,20 +125,39 @@ public class AuthInfoManager {
             + "]" + ",serverSecret:" + serverSecret);
     }
 
+    private void checkInitialized() {
+        if (!initialized) {
+            throw new IllegalStateException("AuthInfoManager.init() is not called");
+        }
+    }
+
+    private void awaitLoaded() {
+        // nothing would ever release the wait
+        checkInitialized();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                loaded.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     private String readJsonFile(Context context, String fileName) {
-        String jsonStr = "";
-        try {
-            InputStream inputStream = context.getAssets().open(fileName);
-            Reader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8);
-            int ch = 0;
-            StringBuffer sb = new StringBuffer();
-            while ((ch = reader.read()) != -1) {
-                sb.append((char) ch);
+        try (Reader reader = new BufferedReader(
+            new InputStreamReader(context.getAssets().open(fileName), StandardCharsets.UTF_8))) {
+            StringBuilder sb = new StringBuilder();
+            char[] buffer = new char[1024];
+            int count;
+            while ((count = reader.read(buffer)) != -1) {
+                sb.append(buffer, 0, count);
             }
-            inputStream.close();
-            reader.close();
-            jsonStr = sb.toString();
-            return jsonStr;
+            return sb.toString();
         } catch (IOException e) {
             e.printStackTrace();
             return null;
@@ -81,11 +165,7 @@ public class AuthInfoManager {
     }
 
     public String generateToken(String userID) {
-        try {
-            return TokenServerAssistant.generateToken(appID, userID, serverSecret, 60 * 60 * 24).data;
-        } catch (JSONException e) {
-            e.printStackTrace();
-            return "";
-        }
+        awaitLoaded();
+        return TokenServerAssistant.generateToken(appID, userID, serverSecret, 60 * 60 * 24).data;
     }
 }
\ No newline at end of file
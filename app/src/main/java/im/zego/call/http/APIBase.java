@@ -8,6 +8,7 @@ import com.google.gson.Gson;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import im.zego.callsdk.utils.ZegoCodecRegistry;
 import java.io.IOException;
 import java.util.concurrent.TimeUnit;
 import okhttp3.Call;
@@ -24,7 +25,7 @@ public class APIBase {
 
     private static final String TAG = "APIBase";
 
-    private static Gson mGson = new Gson();
+    private static final Gson mGson = ZegoCodecRegistry.gson();
     private static final Handler okHandler = new Handler(Looper.getMainLooper());
     private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
 
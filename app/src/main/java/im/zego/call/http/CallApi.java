@@ -8,6 +8,7 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.reflect.TypeToken;
 import im.zego.call.http.bean.UserBean;
+import im.zego.callsdk.utils.ZegoCodecRegistry;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.List;
@@ -16,7 +17,7 @@ public class CallApi {
 
     private static final String TAG = "CallApi";
     private static final String baseUrl = "https://demo-server-api.zegocloud.com";
-    private static Gson gson = new Gson();
+    private static final Gson gson = ZegoCodecRegistry.gson();
 
     public static final int PARAM_ERROR = 4;
     public static final int USER_OFFLINE_1 = 80001;
@@ -1,23 +1,49 @@
 package im.zego.call.token;
 
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
 import android.text.TextUtils;
 import android.text.format.DateUtils;
+import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 import im.zego.call.auth.AuthInfoManager;
+import im.zego.call.token.ZegoTokenStore.Kind;
+import im.zego.callsdk.auth.ZegoRoomTokenCache;
+import im.zego.callsdk.auth.ZegoTokenDecoder;
+import im.zego.callsdk.auth.ZegoTokenEngine.ErrorCode;
+import im.zego.callsdk.auth.ZegoTokenEngine.Privileges;
+import im.zego.callsdk.auth.ZegoTokenEngine.TokenInfo;
+import im.zego.callsdk.model.ZegoRoomInfo;
+import im.zego.callsdk.service.ZegoRoomManager;
+import im.zego.callsdk.service.ZegoUserService;
 import im.zego.zegoexpress.ZegoExpressErrorCode;
 
 
 /**
  * Created by rocket_wang on 2022/4/9.
+ * <p>
+ * Tokens are minted on a worker thread. Concurrent requests for the same user share one mint, and the cached token is
+ * refreshed and renewed on ZIM and Express a margin before it expires, so the call path never waits for a mint.
+ * Minted user and room tokens are also kept in a {@link ZegoTokenStore}, which lets a warm restart log in, and rejoin
+ * the room of its call, without minting.
  */
 public class ZegoTokenManager {
     private static volatile ZegoTokenManager singleton = null;
 
     private ZegoTokenManager() {
+        HandlerThread tokenThread = new HandlerThread("token");
+        tokenThread.start();
+        workHandler = new Handler(tokenThread.getLooper());
     }
 
     public static ZegoTokenManager getInstance() {
@@ -31,38 +57,346 @@ public class ZegoTokenManager {
         return singleton;
     }
 
+    private static final String TAG = "ZegoTokenManager";
     private static final long EFFECTIVE_TIME_IN_MILLIS = DateUtils.DAY_IN_MILLIS;
+    private static final long DEFAULT_REFRESH_MARGIN_IN_MILLIS = 10 * DateUtils.MINUTE_IN_MILLIS;
+    private static final int ROOM_TOKEN_CACHE_SIZE = 32;
+    // the wait before refreshing again a token minted inside the margin, doubled up to the max
+    private static final long MIN_REFRESH_BACKOFF_IN_MILLIS = 30 * DateUtils.SECOND_IN_MILLIS;
+    private static final long MAX_REFRESH_BACKOFF_IN_MILLIS = 30 * DateUtils.MINUTE_IN_MILLIS;
+    // the handler clock stops in deep sleep, so the wall clock is checked at least this often
+    private static final long REFRESH_CHECK_INTERVAL_IN_MILLIS = 5 * DateUtils.MINUTE_IN_MILLIS;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Handler workHandler;
+    // the mint in flight, by userID
+    private final Map<String, Fetch> pendingFetches = new HashMap<>();
+    private final Runnable refreshRunnable = this::refreshToken;
 
     private String token;
     private long expiryTime;
     private String userID;
+    private long refreshMarginInMillis = DEFAULT_REFRESH_MARGIN_IN_MILLIS;
+    // bumped by clear, a fetch started before it is not cached
+    private int generation;
+    private long refreshBackoffInMillis;
+    // the wall clock time the token is not refreshed before, to back off
+    private long refreshNotBefore;
+    private ZegoTokenStore store;
+    private ZegoRoomTokenCache roomTokenCache;
+
+    /**
+     * Set how long before its expiry the cached token is refreshed.
+     *
+     * @param marginInMillis the margin, in milliseconds, less than the lifetime of a token.
+     */
+    public synchronized void setRefreshMargin(long marginInMillis) {
+        if (marginInMillis < 0 || marginInMillis >= EFFECTIVE_TIME_IN_MILLIS) {
+            throw new IllegalArgumentException("marginInMillis = " + marginInMillis);
+        }
+        this.refreshMarginInMillis = marginInMillis;
+        scheduleRefresh();
+    }
 
     public void getToken(@NonNull String userID, @NonNull ZegoTokenCallback callback) {
         this.getToken(userID, false, callback);
     }
 
+    /**
+     * Get the token of a user.
+     * <p>
+     * A fresh cached token is returned synchronously. Otherwise the token is minted on the worker thread and the
+     * callback is invoked on the main thread, joining the mint already in flight for the same user if any. A forced
+     * request that comes while a non-forced mint is in flight is served by a forced mint after it.
+     */
     public void getToken(@NonNull String userID, boolean isForceUpdate, @NonNull ZegoTokenCallback callback) {
-        if (!TextUtils.isEmpty(this.userID) &&
-                Objects.equals(this.userID, userID) &&
-                !TextUtils.isEmpty(this.token) &&
-                this.expiryTime > System.currentTimeMillis() &&
-                !isForceUpdate) {
-            callback.onTokenCallback(ZegoExpressErrorCode.CommonSuccess, this.token);
+        String cachedToken = null;
+        Fetch fetch = null;
+        synchronized (this) {
+            if (!isForceUpdate && isTokenFresh(userID)) {
+                cachedToken = this.token;
+            } else {
+                Fetch pending = pendingFetches.get(userID);
+                if (pending != null && (pending.force || !isForceUpdate)) {
+                    pending.callbacks.add(callback);
+                    return;
+                }
+                if (pending != null) {
+                    if (pending.forcedCallbacks == null) {
+                        pending.forcedCallbacks = new ArrayList<>();
+                    }
+                    pending.forcedCallbacks.add(callback);
+                    return;
+                }
+                fetch = new Fetch(isForceUpdate, generation);
+                fetch.callbacks.add(callback);
+                pendingFetches.put(userID, fetch);
+            }
+        }
+        if (cachedToken != null) {
+            callback.onTokenCallback(ZegoExpressErrorCode.CommonSuccess, cachedToken);
+            return;
+        }
+        startFetch(userID, fetch);
+    }
+
+    /**
+     * Get the RTC token of a user in a room, with the privileges to log in and to publish.
+     * <p>
+     * The token comes from the persistent store, or else from a per-room cache, so calling the same user again does
+     * not mint it again, nor does rejoining the room after a restart. The callback is invoked on the main thread.
+     */
+    public void getRoomToken(@NonNull String userID, @NonNull String roomID, @NonNull ZegoTokenCallback callback) {
+        long marginInMillis = getRefreshMargin();
+        workHandler.post(() -> {
+            // the stored room tokens all have these privileges
+            String storedToken = store().get(userID, Kind.RTC, roomID, marginInMillis);
+            if (storedToken != null) {
+                mainHandler.post(() -> callback.onTokenCallback(ZegoExpressErrorCode.CommonSuccess, storedToken));
+                return;
+            }
+            Privileges privilege = new Privileges();
+            privilege.canLoginRoom = true;
+            privilege.canPublishStream = true;
+            TokenInfo tokenInfo = roomTokenCache().getToken(roomID, userID, privilege);
+            Log.d(TAG, "getRoomToken: " + roomTokenCache());
+            if (tokenInfo.error.code == ErrorCode.SUCCESS) {
+                store().put(userID, Kind.RTC, roomID, tokenInfo.data,
+                    ZegoTokenDecoder.peekExpireTime(tokenInfo.data) * 1000);
+            }
+            mainHandler.post(() -> {
+                if (tokenInfo.error.code == ErrorCode.SUCCESS) {
+                    callback.onTokenCallback(ZegoExpressErrorCode.CommonSuccess, tokenInfo.data);
+                } else {
+                    callback.onTokenCallback(tokenInfo.error.code.value, null);
+                }
+            });
+        });
+    }
+
+    /**
+     * Mint a new token of the user and renew it on ZIM, along with the RTC token of the room of the current call if
+     * there is one.
+     *
+     * @param roomID the room of the current call, null if there is none.
+     */
+    public void renewToken(@NonNull String userID, @Nullable String roomID) {
+        getToken(userID, true, (errorCode, token) -> {
+            ZegoUserService userService = ZegoRoomManager.getInstance().userService;
+            if (errorCode == ZegoExpressErrorCode.CommonSuccess && isLocalUser(userService, userID)) {
+                userService.renewToken(token, roomID);
+            }
+        });
+        if (TextUtils.isEmpty(roomID)) {
             return;
         }
+        getRoomToken(userID, roomID, (errorCode, roomToken) -> {
+            ZegoUserService userService = ZegoRoomManager.getInstance().userService;
+            if (errorCode == ZegoExpressErrorCode.CommonSuccess && isLocalUser(userService, userID)) {
+                userService.renewRoomToken(roomToken, roomID);
+            }
+        });
+    }
+
+    /**
+     * Forget the tokens of the user, in memory and in the persistent store, so the next login mints new ones.
+     * <p>
+     * Call this method at: When the user logs out.
+     */
+    public void clear() {
+        synchronized (this) {
+            generation++;
+            pendingFetches.clear();
+            token = null;
+            userID = null;
+            expiryTime = 0;
+            refreshBackoffInMillis = 0;
+            refreshNotBefore = 0;
+            scheduleRefresh();
+        }
+        workHandler.post(() -> {
+            store().clear();
+            roomTokenCache().clear();
+        });
+    }
+
+    /**
+     * Open the persistent token store on the worker thread, so that the first getToken finds it ready.
+     * <p>
+     * Call this method at: After MMKV is initialized.
+     */
+    public void preload() {
+        workHandler.post(this::store);
+    }
+
+    // only called on the worker thread
+    private ZegoTokenStore store() {
+        if (store == null) {
+            AuthInfoManager authInfoManager = AuthInfoManager.getInstance();
+            store = new ZegoTokenStore(authInfoManager.getAppID(), authInfoManager.getServerSecret());
+        }
+        return store;
+    }
+
+    // only called on the worker thread
+    private ZegoRoomTokenCache roomTokenCache() {
+        if (roomTokenCache == null) {
+            AuthInfoManager authInfoManager = AuthInfoManager.getInstance();
+            roomTokenCache = new ZegoRoomTokenCache(authInfoManager.getAppID(), authInfoManager.getServerSecret(),
+                (int) (EFFECTIVE_TIME_IN_MILLIS / 1000), getRefreshMargin() / 1000, ROOM_TOKEN_CACHE_SIZE);
+        }
+        return roomTokenCache;
+    }
+
+    private synchronized long getRefreshMargin() {
+        return refreshMarginInMillis;
+    }
+
+    private void startFetch(String userID, Fetch fetch) {
+        long marginInMillis = getRefreshMargin();
+        workHandler.post(() -> {
+            String storedToken = fetch.force ? null : store().get(userID, Kind.ZIM, "", marginInMillis);
+            if (storedToken != null) {
+                mainHandler.post(() -> onTokenFetched(userID, fetch, ZegoExpressErrorCode.CommonSuccess, storedToken));
+                return;
+            }
+            this.getTokenFromServer(userID, EFFECTIVE_TIME_IN_MILLIS, (errorCode, token) -> {
+                if (errorCode == ZegoExpressErrorCode.CommonSuccess && isCurrent(fetch)) {
+                    store().put(userID, Kind.ZIM, "", token, ZegoTokenDecoder.peekExpireTime(token) * 1000);
+                }
+                mainHandler.post(() -> onTokenFetched(userID, fetch, errorCode, token));
+            });
+        });
+    }
+
+    private synchronized boolean isCurrent(Fetch fetch) {
+        return fetch.generation == generation;
+    }
+
+    private void onTokenFetched(String userID, Fetch fetch, int errorCode, String token) {
+        Fetch forcedFetch = null;
+        synchronized (this) {
+            if (pendingFetches.get(userID) == fetch) {
+                pendingFetches.remove(userID);
+            }
+            // a fetch from before the logout is handed to its callbacks, not kept
+            if (fetch.generation == generation) {
+                if (errorCode == ZegoExpressErrorCode.CommonSuccess) {
+                    this.token = token;
+                    this.userID = userID;
+                    // trust the expire time carried by the token rather than our own clock arithmetic
+                    this.expiryTime = ZegoTokenDecoder.peekExpireTime(token) * 1000;
+                    backOffIfInsideMargin();
+                    scheduleRefresh();
+                }
+                if (fetch.forcedCallbacks != null) {
+                    forcedFetch = new Fetch(true, generation);
+                    forcedFetch.callbacks.addAll(fetch.forcedCallbacks);
+                    pendingFetches.put(userID, forcedFetch);
+                }
+            }
+        }
+        deliver(fetch.callbacks, errorCode, token);
+        if (forcedFetch != null) {
+            startFetch(userID, forcedFetch);
+        } else if (fetch.forcedCallbacks != null) {
+            deliver(fetch.forcedCallbacks, errorCode, token);
+        }
+    }
 
-        this.getTokenFromServer(userID, EFFECTIVE_TIME_IN_MILLIS, (errorCode, token) -> {
+    private static void deliver(List<ZegoTokenCallback> callbacks, int errorCode, String token) {
+        for (ZegoTokenCallback callback : callbacks) {
             if (errorCode == ZegoExpressErrorCode.CommonSuccess) {
-                this.token = token;
-                this.userID = userID;
-                this.expiryTime = System.currentTimeMillis() + EFFECTIVE_TIME_IN_MILLIS;
                 callback.onTokenCallback(errorCode, token);
             } else {
                 callback.onTokenCallback(errorCode, null);
             }
+        }
+    }
+
+    private boolean isTokenFresh(String userID) {
+        return !TextUtils.isEmpty(this.userID) &&
+                Objects.equals(this.userID, userID) &&
+                !TextUtils.isEmpty(this.token) &&
+                this.expiryTime - refreshMarginInMillis > System.currentTimeMillis();
+    }
+
+    // call with the lock held, a token already inside the margin, or unreadable, is refreshed again after a backoff
+    private void backOffIfInsideMargin() {
+        long now = System.currentTimeMillis();
+        if (expiryTime - refreshMarginInMillis > now) {
+            refreshBackoffInMillis = 0;
+        } else if (refreshBackoffInMillis == 0) {
+            refreshBackoffInMillis = MIN_REFRESH_BACKOFF_IN_MILLIS;
+        } else {
+            refreshBackoffInMillis = Math.min(refreshBackoffInMillis * 2, MAX_REFRESH_BACKOFF_IN_MILLIS);
+        }
+        refreshNotBefore = now + refreshBackoffInMillis;
+    }
+
+    // call with the lock held
+    private long getRefreshTime() {
+        return Math.max(expiryTime - refreshMarginInMillis, refreshNotBefore);
+    }
+
+    // call with the lock held
+    private void scheduleRefresh() {
+        workHandler.removeCallbacks(refreshRunnable);
+        if (TextUtils.isEmpty(token)) {
+            return;
+        }
+        long delay = Math.max(0, getRefreshTime() - System.currentTimeMillis());
+        workHandler.postDelayed(refreshRunnable, Math.min(delay, REFRESH_CHECK_INTERVAL_IN_MILLIS));
+    }
+
+    private void refreshToken() {
+        String userID;
+        synchronized (this) {
+            if (TextUtils.isEmpty(token)) {
+                return;
+            }
+            // not due yet by the wall clock, the handler only woke up to check it
+            if (getRefreshTime() > System.currentTimeMillis()) {
+                scheduleRefresh();
+                return;
+            }
+            userID = this.userID;
+        }
+        if (TextUtils.isEmpty(userID)) {
+            return;
+        }
+        Log.d(TAG, "refreshToken() called with: userID = [" + userID + "]");
+        // posted, the room of the current call is read on the main thread
+        mainHandler.post(() -> {
+            ZegoUserService userService = ZegoRoomManager.getInstance().userService;
+            if (!isLocalUser(userService, userID)) {
+                return;
+            }
+            ZegoRoomInfo roomInfo = userService.getRoomInfo();
+            renewToken(userID, roomInfo == null ? null : roomInfo.roomID);
         });
     }
 
+    // a mint in flight and the requests waiting for it
+    private static final class Fetch {
+
+        final boolean force;
+        final int generation;
+        final List<ZegoTokenCallback> callbacks = new ArrayList<>();
+        // forced requests that joined a non-forced fetch, fetched again after it
+        List<ZegoTokenCallback> forcedCallbacks;
+
+        Fetch(boolean force, int generation) {
+            this.force = force;
+            this.generation = generation;
+        }
+    }
+
+    private static boolean isLocalUser(ZegoUserService userService, String userID) {
+        return userService != null && userService.localUserInfo != null &&
+                Objects.equals(userService.localUserInfo.userID, userID);
+    }
+
     private void getTokenFromServer(@NonNull String userID, long effectiveTimeInMillis, @NonNull ZegoTokenCallback callback) {
         String token = AuthInfoManager.getInstance().generateToken(userID);
         callback.onTokenCallback(ZegoExpressErrorCode.CommonSuccess, token);
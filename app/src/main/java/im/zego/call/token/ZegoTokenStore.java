@@ -0,0 +1,138 @@
+package im.zego.call.token;
+
+import android.text.TextUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.tencent.mmkv.MMKV;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Persistent token cache.
+ * <p>
+ * Tokens are kept in an encrypted MMKV instance keyed by (appID, kind, userID, roomID), each with its expiry time, so a
+ * warm restart can log in with the stored token instead of minting a new one. The crypt key is derived from the server
+ * secret with an HMAC, so the file never holds any part of the secret itself. The instance is opened on first use,
+ * which {@link ZegoTokenManager} only does on its worker thread, and expired entries are evicted when it is opened.
+ */
+public class ZegoTokenStore {
+
+    public enum Kind {
+        ZIM,
+        RTC
+    }
+
+    private static final String MMKV_ID = "zego_token";
+    private static final String EXPIRY_SUFFIX = "#expiry";
+    private static final String CRYPT_KEY_LABEL = "zego_token_store_crypt_key";
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int MAX_CRYPT_KEY_LENGTH = 16;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final long appID;
+    private final String cryptKey;
+    private MMKV mmkv;
+
+    /**
+     * @param appID        the project the tokens are minted for, part of the key of each token.
+     * @param serverSecret the secret the crypt key of the store is derived from, the store is not encrypted if it is
+     *                     empty.
+     */
+    public ZegoTokenStore(long appID, @Nullable String serverSecret) {
+        this.appID = appID;
+        this.cryptKey = TextUtils.isEmpty(serverSecret) ? null : deriveCryptKey(serverSecret);
+    }
+
+    /**
+     * Get a stored token that stays valid for at least the given margin.
+     *
+     * @param roomID         the room of the token, empty for a user level token.
+     * @param marginInMillis the token must not expire within this margin.
+     * @return the token, null if there is none or it is about to expire.
+     */
+    @Nullable
+    public synchronized String get(@NonNull String userID, @NonNull Kind kind, @NonNull String roomID,
+        long marginInMillis) {
+        String key = keyOf(appID, userID, kind, roomID);
+        MMKV mmkv = mmkv();
+        long expiryTime = mmkv.decodeLong(key + EXPIRY_SUFFIX, 0);
+        if (expiryTime - marginInMillis <= System.currentTimeMillis()) {
+            if (expiryTime != 0 && expiryTime <= System.currentTimeMillis()) {
+                remove(mmkv, key);
+            }
+            return null;
+        }
+        return mmkv.decodeString(key, null);
+    }
+
+    public synchronized void put(@NonNull String userID, @NonNull Kind kind, @NonNull String roomID,
+        @NonNull String token, long expiryTime) {
+        String key = keyOf(appID, userID, kind, roomID);
+        MMKV mmkv = mmkv();
+        mmkv.encode(key, token);
+        mmkv.encode(key + EXPIRY_SUFFIX, expiryTime);
+    }
+
+    public synchronized void clear() {
+        mmkv().clearAll();
+    }
+
+    private MMKV mmkv() {
+        if (mmkv == null) {
+            if (TextUtils.isEmpty(cryptKey)) {
+                mmkv = MMKV.mmkvWithID(MMKV_ID);
+            } else {
+                mmkv = MMKV.mmkvWithID(MMKV_ID, MMKV.SINGLE_PROCESS_MODE, cryptKey);
+            }
+            evictExpired(mmkv);
+        }
+        return mmkv;
+    }
+
+    private void evictExpired(MMKV mmkv) {
+        String[] keys = mmkv.allKeys();
+        if (keys == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (String key : keys) {
+            if (key.endsWith(EXPIRY_SUFFIX) && mmkv.decodeLong(key, 0) <= now) {
+                remove(mmkv, key.substring(0, key.length() - EXPIRY_SUFFIX.length()));
+            }
+        }
+    }
+
+    private void remove(MMKV mmkv, String key) {
+        mmkv.removeValuesForKeys(new String[]{key, key + EXPIRY_SUFFIX});
+    }
+
+    private static String keyOf(long appID, String userID, Kind kind, String roomID) {
+        return appID + "|" + kind.name() + "|" + userID + "|" + roomID;
+    }
+
+    /**
+     * @return the first 16 hex digits of the HMAC of a fixed label with the secret.
+     */
+    private static String deriveCryptKey(String serverSecret) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(new SecretKeySpec(serverSecret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM));
+            byte[] digest = mac.doFinal(CRYPT_KEY_LABEL.getBytes(StandardCharsets.UTF_8));
+            char[] hex = new char[MAX_CRYPT_KEY_LENGTH];
+            for (int i = 0; i < hex.length; i += 2) {
+                hex[i] = HEX_DIGITS[(digest[i / 2] >> 4) & 0xf];
+                hex[i + 1] = HEX_DIGITS[digest[i / 2] & 0xf];
+            }
+            return new String(hex);
+        } catch (GeneralSecurityException e) {
+            // every Android release has HmacSHA256
+            throw new IllegalStateException(e);
+        }
+    }
+}
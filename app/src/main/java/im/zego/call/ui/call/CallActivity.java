@@ -32,7 +32,6 @@ import im.zego.call.ui.call.CallStateManager.CallStateChangedListener;
 import im.zego.call.ui.common.LoadingDialog;
 import im.zego.call.utils.AvatarHelper;
 import im.zego.callsdk.model.ZegoCallType;
-import im.zego.callsdk.model.ZegoCancelType;
 import im.zego.callsdk.model.ZegoNetWorkQuality;
 import im.zego.callsdk.model.ZegoUserInfo;
 import im.zego.callsdk.service.ZegoRoomManager;
@@ -48,15 +47,6 @@ public class CallActivity extends BaseActivity<ActivityCallBinding> {
 
     private ZegoUserInfo userInfo;
     private Handler handler = new Handler(Looper.getMainLooper());
-    private Runnable missCallRunnable = () -> {
-        ZegoUserService userService = ZegoRoomManager.getInstance().userService;
-        userService.cancelCall(ZegoCancelType.TIMEOUT, userInfo.userID, errorCode -> {
-            CallStateManager.getInstance().setCallState(null, CallStateManager.TYPE_CALL_MISSED);
-        });
-    };
-    private Runnable finishRunnable = () -> {
-        CallStateManager.getInstance().setCallState(null, CallStateManager.TYPE_CALL_MISSED);
-    };
     private Runnable timeCountRunnable = new Runnable() {
         @Override
         public void run() {
@@ -146,8 +136,6 @@ public class CallActivity extends BaseActivity<ActivityCallBinding> {
                 if ((beforeIsOutgoing || beforeIsInComing) && afterIsAccept) {
                     time = 0;
                     handler.post(timeCountRunnable);
-                    handler.removeCallbacks(missCallRunnable);
-                    handler.removeCallbacks(finishRunnable);
                     ZegoUserService userService = ZegoRoomManager.getInstance().userService;
                     userService.speakerOperate(false);
                 } else if (after == CallStateManager.TYPE_CALL_CANCELED) {
@@ -180,7 +168,7 @@ public class CallActivity extends BaseActivity<ActivityCallBinding> {
 
         String userID = userService.localUserInfo.userID;
         if (typeOfCall == CallStateManager.TYPE_OUTGOING_CALLING_VOICE) {
-            ZegoTokenManager.getInstance().getToken(userID, (errorCode2, token) -> {
+            ZegoTokenManager.getInstance().getRoomToken(userID, userID, (errorCode2, token) -> {
                 userService.callUser(userInfo.userID, ZegoCallType.Voice, token, errorCode -> {
                     if (errorCode == 0) {
                         userService.enableMic(true, errorCode1 -> {
@@ -189,7 +177,6 @@ public class CallActivity extends BaseActivity<ActivityCallBinding> {
                                 ToastUtils.showShort(getString(R.string.mic_operate_failed, errorCode1));
                             }
                         });
-                        handler.postDelayed(missCallRunnable, 60 * 1000);
                     } else {
                         showWarnTips(getString(R.string.call_page_call_fail, errorCode));
                         finishActivityDelayed();
@@ -197,7 +184,7 @@ public class CallActivity extends BaseActivity<ActivityCallBinding> {
                 });
             });
         } else if (typeOfCall == CallStateManager.TYPE_OUTGOING_CALLING_VIDEO) {
-            ZegoTokenManager.getInstance().getToken(userID, (errorCode3, token) -> {
+            ZegoTokenManager.getInstance().getRoomToken(userID, userID, (errorCode3, token) -> {
                 userService.callUser(userInfo.userID, ZegoCallType.Video, token, errorCode -> {
                     if (errorCode == 0) {
                         TextureView textureView = binding.layoutOutgoingCall.getTextureView();
@@ -212,17 +199,12 @@ public class CallActivity extends BaseActivity<ActivityCallBinding> {
                             }
                             userService.startPlaying(userService.localUserInfo.userID, textureView);
                         });
-                        handler.postDelayed(missCallRunnable, 60 * 1000);
                     } else {
                         showWarnTips(getString(R.string.call_page_call_fail, errorCode));
                         finishActivityDelayed();
                     }
                 });
             });
-        } else if (typeOfCall == CallStateManager.TYPE_INCOMING_CALLING_VIDEO) {
-            handler.postDelayed(finishRunnable, 62 * 1000);
-        } else if (typeOfCall == CallStateManager.TYPE_INCOMING_CALLING_VOICE) {
-            handler.postDelayed(finishRunnable, 62 * 1000);
         } else if (typeOfCall == CallStateManager.TYPE_CONNECTED_VOICE) {
             handler.post(timeCountRunnable);
             userService.enableMic(true, errorCode -> {
@@ -230,8 +212,6 @@ public class CallActivity extends BaseActivity<ActivityCallBinding> {
                     userService.speakerOperate(false);
                 }
             });
-            handler.removeCallbacks(missCallRunnable);
-            handler.removeCallbacks(finishRunnable);
         } else if (typeOfCall == CallStateManager.TYPE_CONNECTED_VIDEO) {
             handler.post(timeCountRunnable);
             userService.enableMic(true, errorCode -> {
@@ -243,8 +223,6 @@ public class CallActivity extends BaseActivity<ActivityCallBinding> {
                     });
                 }
             });
-            handler.removeCallbacks(missCallRunnable);
-            handler.removeCallbacks(finishRunnable);
         }
     }
 
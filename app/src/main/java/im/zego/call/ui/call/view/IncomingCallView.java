@@ -57,7 +57,8 @@ public class IncomingCallView extends ConstraintLayout {
             @Override
             public void onClick(View v) {
                 ZegoUserService userService = ZegoRoomManager.getInstance().userService;
-                ZegoTokenManager.getInstance().getToken(userService.localUserInfo.userID, (errorCode3, token) -> {
+                String selfUserID = userService.localUserInfo.userID;
+                ZegoTokenManager.getInstance().getRoomToken(selfUserID, userInfo.userID, (errorCode3, token) -> {
                     userService.respondCall(ZegoResponseType.Accept, userInfo.userID, token, errorCode -> {
                         if (errorCode == ZIMErrorCode.SUCCESS.value()) {
                             userService.enableMic(true, errorCode1 -> {
@@ -80,7 +81,8 @@ public class IncomingCallView extends ConstraintLayout {
             @Override
             public void onClick(View v) {
                 ZegoUserService userService = ZegoRoomManager.getInstance().userService;
-                ZegoTokenManager.getInstance().getToken(userService.localUserInfo.userID, (errorCode3, token) -> {
+                String selfUserID = userService.localUserInfo.userID;
+                ZegoTokenManager.getInstance().getRoomToken(selfUserID, userInfo.userID, (errorCode3, token) -> {
                     userService.respondCall(ZegoResponseType.Accept, userInfo.userID, token, errorCode -> {
                         if (errorCode == ZIMErrorCode.SUCCESS.value()) {
                             userService.enableMic(true, errorCode1 -> {
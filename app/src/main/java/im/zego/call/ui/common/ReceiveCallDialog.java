@@ -9,8 +9,6 @@ import android.content.DialogInterface;
 import android.graphics.PixelFormat;
 import android.os.Build;
 import android.os.Build.VERSION_CODES;
-import android.os.Handler;
-import android.os.Looper;
 import android.view.Gravity;
 import android.view.View;
 import android.view.ViewGroup;
@@ -24,7 +22,6 @@ import com.blankj.utilcode.util.AppUtils;
 import com.blankj.utilcode.util.PermissionUtils;
 import com.blankj.utilcode.util.PermissionUtils.SimpleCallback;
 import im.zego.call.R;
-import im.zego.call.ui.call.CallStateManager;
 import im.zego.call.ui.common.ReceiveCallView.OnReceiveCallViewClickedListener;
 import im.zego.call.ui.login.LoginActivity;
 import im.zego.call.utils.PermissionHelper;
@@ -40,7 +37,6 @@ public class ReceiveCallDialog {
     private Dialog callDialog;
     private OnReceiveCallViewClickedListener listener;
     private AlertDialog floatPermissionDialog;
-    private Handler handler = new Handler(Looper.getMainLooper());
 
     public ReceiveCallDialog() {
         Activity topActivity = ActivityUtils.getTopActivity();
@@ -68,7 +64,6 @@ public class ReceiveCallDialog {
                 if (listener != null) {
                     listener.onAcceptAudioClicked();
                 }
-                handler.removeCallbacksAndMessages(null);
             }
 
             @Override
@@ -77,7 +72,6 @@ public class ReceiveCallDialog {
                 if (listener != null) {
                     listener.onAcceptVideoClicked();
                 }
-                handler.removeCallbacksAndMessages(null);
             }
 
             @Override
@@ -86,7 +80,6 @@ public class ReceiveCallDialog {
                 if (listener != null) {
                     listener.onDeclineClicked();
                 }
-                handler.removeCallbacksAndMessages(null);
             }
 
             @Override
@@ -95,7 +88,6 @@ public class ReceiveCallDialog {
                 if (listener != null) {
                     listener.onWindowClicked();
                 }
-                handler.removeCallbacksAndMessages(null);
             }
         });
     }
@@ -123,13 +115,6 @@ public class ReceiveCallDialog {
                 });
             }
         }
-        handler.postDelayed(new Runnable() {
-            @Override
-            public void run() {
-                CallStateManager.getInstance().setCallState(getUserInfo(), CallStateManager.TYPE_CALL_MISSED);
-                dismissReceiveCallWindow();
-            }
-        }, 62 * 1000);
     }
 
     public void showFloatPermissionDialog(Context context, PermissionUtils.SimpleCallback callback) {
@@ -180,7 +165,6 @@ public class ReceiveCallDialog {
         if (floatPermissionDialog != null) {
             floatPermissionDialog.dismiss();
         }
-        handler.removeCallbacksAndMessages(null);
     }
 
     public void setListener(OnReceiveCallViewClickedListener listener) {
@@ -76,7 +76,8 @@ public class ReceiveCallView extends FrameLayout {
 
         binding.dialogCallAcceptVoice.setOnClickListener(v -> {
             ZegoUserService userService = ZegoRoomManager.getInstance().userService;
-            ZegoTokenManager.getInstance().getToken(userService.localUserInfo.userID, (errorCode3, token) -> {
+            String selfUserID = userService.localUserInfo.userID;
+            ZegoTokenManager.getInstance().getRoomToken(selfUserID, userInfo.userID, (errorCode3, token) -> {
                 userService.respondCall(ZegoResponseType.Accept, userInfo.userID, token, errorCode -> {
                     if (errorCode == ZIMErrorCode.SUCCESS.value()) {
                         CallStateManager.getInstance().setCallState(userInfo, CallStateManager.TYPE_CONNECTED_VOICE);
@@ -92,7 +93,8 @@ public class ReceiveCallView extends FrameLayout {
         });
         binding.dialogCallAcceptVideo.setOnClickListener(v -> {
             ZegoUserService userService = ZegoRoomManager.getInstance().userService;
-            ZegoTokenManager.getInstance().getToken(userService.localUserInfo.userID, (errorCode3, token) -> {
+            String selfUserID = userService.localUserInfo.userID;
+            ZegoTokenManager.getInstance().getRoomToken(selfUserID, userInfo.userID, (errorCode3, token) -> {
                 userService.respondCall(ZegoResponseType.Accept, userInfo.userID, token, errorCode -> {
                     if (errorCode == ZIMErrorCode.SUCCESS.value()) {
                         CallStateManager.getInstance().setCallState(userInfo, CallStateManager.TYPE_CONNECTED_VIDEO);
@@ -15,7 +15,6 @@ import android.util.Log;
 import android.view.View;
 import android.view.View.OnClickListener;
 
-import androidx.annotation.Nullable;
 import androidx.core.app.NotificationCompat;
 import androidx.core.app.NotificationCompat.Builder;
 import androidx.core.app.NotificationManagerCompat;
@@ -30,10 +29,10 @@ import com.tencent.mmkv.MMKV;
 import java.util.Objects;
 
 import im.zego.call.R;
+import im.zego.call.auth.AuthInfoManager;
 import im.zego.call.databinding.ActivityEntryBinding;
 import im.zego.call.http.WebClientManager;
 import im.zego.call.service.ForegroundService;
-import im.zego.call.token.ZegoTokenCallback;
 import im.zego.call.token.ZegoTokenManager;
 import im.zego.call.ui.BaseActivity;
 import im.zego.call.ui.call.CallActivity;
@@ -47,6 +46,7 @@ import im.zego.call.ui.webview.WebViewActivity;
 import im.zego.call.utils.AvatarHelper;
 import im.zego.call.utils.PermissionHelper;
 import im.zego.callsdk.listener.ZegoUserServiceListener;
+import im.zego.callsdk.model.ZegoCallTimeoutType;
 import im.zego.callsdk.model.ZegoCallType;
 import im.zego.callsdk.model.ZegoCancelType;
 import im.zego.callsdk.model.ZegoNetWorkQuality;
@@ -98,6 +98,63 @@ public class EntryActivity extends BaseActivity<ActivityEntryBinding> {
             }
         });
 
+        dialog = new ReceiveCallDialog();
+        // the SDK is set up once KeyCenter.json is loaded, which comes after this when the activity is restored
+        AuthInfoManager.getInstance().whenLoaded(this::initUserService);
+
+        createNotificationChannel();
+        AppUtils.registerAppStatusChangedListener(new OnAppStatusChangedListener() {
+            @Override
+            public void onForeground(Activity activity) {
+                dismissNotification(notificationId);
+                // some phone will freeze app when phone is desktop,even if we start foreground service,
+                // such as vivo.
+                // so when app back to foreground, if heartbeat failed,relogin.
+                WebClientManager.getInstance().tryReLogin((errorCode, message, response) -> {
+                    if (errorCode != 0) {
+                        logout();
+                    }
+                });
+            }
+
+            @Override
+            public void onBackground(Activity activity) {
+                boolean needNotification = CallStateManager.getInstance().isInACallStream();
+                ZegoUserInfo userInfo = CallStateManager.getInstance().getUserInfo();
+                if (needNotification && userInfo != null) {
+                    showNotification(userInfo);
+                }
+            }
+        });
+        dialog.setListener(new OnReceiveCallViewClickedListener() {
+            @Override
+            public void onAcceptAudioClicked() {
+                dismissNotification(notificationId);
+            }
+
+            @Override
+            public void onAcceptVideoClicked() {
+                dismissNotification(notificationId);
+            }
+
+            @Override
+            public void onDeclineClicked() {
+                dismissNotification(notificationId);
+            }
+
+            @Override
+            public void onWindowClicked() {
+                dismissNotification(notificationId);
+            }
+        });
+        Intent intent = new Intent(this, ForegroundService.class);
+        ContextCompat.startForegroundService(this, intent);
+    }
+
+    private void initUserService() {
+        if (isDestroyed()) {
+            return;
+        }
         ZegoUserService userService = ZegoRoomManager.getInstance().userService;
         ZegoUserInfo localUserInfo = userService.localUserInfo;
 
@@ -106,7 +163,6 @@ public class EntryActivity extends BaseActivity<ActivityEntryBinding> {
         Drawable userIcon = AvatarHelper.getAvatarByUserName(localUserInfo.userName);
         binding.entryUserAvatar.setImageDrawable(userIcon);
 
-        dialog = new ReceiveCallDialog();
         userService.setListener(new ZegoUserServiceListener() {
             @Override
             public void onUserInfoUpdated(ZegoUserInfo userInfo) {
@@ -140,6 +196,13 @@ public class EntryActivity extends BaseActivity<ActivityEntryBinding> {
                     state = CallStateManager.TYPE_INCOMING_CALLING_VIDEO;
                 }
                 CallStateManager.getInstance().setCallState(userInfo, state);
+                // join the room of the caller while ringing, so that accepting only starts publishing
+                ZegoTokenManager.getInstance().getRoomToken(localUserInfo.userID, userInfo.userID,
+                    (errorCode, token) -> {
+                        if (errorCode == ZegoExpressErrorCode.CommonSuccess) {
+                            userService.preJoinRoom(userInfo.userID, token);
+                        }
+                    });
 
                 //show notification on lock-screen
                 PowerManager powerManager = (PowerManager) getSystemService(Context.POWER_SERVICE);
@@ -251,64 +314,32 @@ public class EntryActivity extends BaseActivity<ActivityEntryBinding> {
             @Override
             public void onRoomTokenWillExpire(int remainTimeInSecond, String roomID) {
                 ZegoUserInfo selfUser = ZegoRoomManager.getInstance().userService.localUserInfo;
-                ZegoTokenManager.getInstance().getToken(selfUser.userID, true, new ZegoTokenCallback() {
-                    @Override
-                    public void onTokenCallback(int errorCode, @Nullable String token) {
-                        if (errorCode == ZegoExpressErrorCode.CommonSuccess) {
-                            ZegoRoomManager.getInstance().userService.renewToken(token, roomID);
-                        }
-                    }
-                });
+                // the user token on ZIM, and the room token the call joined with on RTC
+                ZegoTokenManager.getInstance().renewToken(selfUser.userID, roomID);
             }
-        });
 
-        createNotificationChannel();
-        AppUtils.registerAppStatusChangedListener(new OnAppStatusChangedListener() {
             @Override
-            public void onForeground(Activity activity) {
-                dismissNotification(notificationId);
-                // some phone will freeze app when phone is desktop,even if we start foreground service,
-                // such as vivo.
-                // so when app back to foreground, if heartbeat failed,relogin.
-                WebClientManager.getInstance().tryReLogin((errorCode, message, response) -> {
-                    if (errorCode != 0) {
-                        logout();
+            public void onCallTimeout(ZegoCallTimeoutType type, String userID) {
+                Log.d(TAG, "onCallTimeout() called with: type = [" + type + "], userID = [" + userID + "]");
+                if (type == ZegoCallTimeoutType.RING) {
+                    // the SDK canceled the call already
+                    if (!CallStateManager.getInstance().isConnected()) {
+                        CallStateManager.getInstance().setCallState(null, CallStateManager.TYPE_CALL_MISSED);
                     }
-                });
-            }
-
-            @Override
-            public void onBackground(Activity activity) {
-                boolean needNotification = CallStateManager.getInstance().isInACallStream();
-                ZegoUserInfo userInfo = CallStateManager.getInstance().getUserInfo();
-                if (needNotification && userInfo != null) {
-                    showNotification(userInfo);
+                } else if (type == ZegoCallTimeoutType.ANSWER) {
+                    CallStateManager.getInstance()
+                        .setCallState(dialog.getUserInfo(), CallStateManager.TYPE_CALL_MISSED);
+                    dialog.dismissReceiveCallWindow();
+                    dismissNotification(notificationId);
+                } else if (type == ZegoCallTimeoutType.HEARTBEAT) {
+                    // the other user may come back, the call ends only when it leaves the room
+                    ToastUtils.showShort(R.string.call_peer_no_response);
+                } else {
+                    // the connection is gone, the call is over
+                    onReceiveCallEnded();
                 }
             }
         });
-        dialog.setListener(new OnReceiveCallViewClickedListener() {
-            @Override
-            public void onAcceptAudioClicked() {
-                dismissNotification(notificationId);
-            }
-
-            @Override
-            public void onAcceptVideoClicked() {
-                dismissNotification(notificationId);
-            }
-
-            @Override
-            public void onDeclineClicked() {
-                dismissNotification(notificationId);
-            }
-
-            @Override
-            public void onWindowClicked() {
-                dismissNotification(notificationId);
-            }
-        });
-        Intent intent = new Intent(this, ForegroundService.class);
-        ContextCompat.startForegroundService(this, intent);
     }
 
     private void createNotificationChannel() {
@@ -375,7 +406,9 @@ public class EntryActivity extends BaseActivity<ActivityEntryBinding> {
         super.onDestroy();
         Log.d(TAG, "onDestroy() called");
         ZegoUserService userService = ZegoRoomManager.getInstance().userService;
-        userService.setListener(null);
+        if (userService != null) {
+            userService.setListener(null);
+        }
         stopService(new Intent(this, ForegroundService.class));
     }
 
@@ -390,6 +423,7 @@ public class EntryActivity extends BaseActivity<ActivityEntryBinding> {
         userService.logout();
         CallStateManager.getInstance().setCallState(null, CallStateManager.TYPE_NO_CALL);
         WebClientManager.getInstance().logout(userID, null);
+        ZegoTokenManager.getInstance().clear();
         MMKV.defaultMMKV().encode("autoLogin", false);
         ActivityUtils.finishToActivity(LoginActivity.class, false);
     }
@@ -22,6 +22,7 @@ import com.tencent.mmkv.MMKV;
 import java.util.Random;
 
 import im.zego.call.R;
+import im.zego.call.auth.AuthInfoManager;
 import im.zego.call.databinding.ActivityLoginBinding;
 import im.zego.call.http.CallApi;
 import im.zego.call.http.IAsyncGetCallback;
@@ -190,15 +191,18 @@ public class LoginActivity extends BaseActivity<ActivityLoginBinding> {
                     userInfo.userName = userName;
                     userInfo.userID = userID;
 
-                    ZegoTokenManager.getInstance().getToken(userID, (errorCode3, token) -> {
-                        ZegoUserService userService = ZegoRoomManager.getInstance().userService;
-                        userService.login(userInfo, token, code -> {
-                            Log.d(TAG, "login: " + code);
-                            if (code == 0) {
-                                ActivityUtils.startActivity(EntryActivity.class);
-                            } else {
-                                showWarnTips(getString(R.string.toast_login_fail, code));
-                            }
+                    // the SDK is set up once KeyCenter.json is loaded
+                    AuthInfoManager.getInstance().whenLoaded(() -> {
+                        ZegoTokenManager.getInstance().getToken(userID, (errorCode3, token) -> {
+                            ZegoUserService userService = ZegoRoomManager.getInstance().userService;
+                            userService.login(userInfo, token, code -> {
+                                Log.d(TAG, "login: " + code);
+                                if (code == 0) {
+                                    ActivityUtils.startActivity(EntryActivity.class);
+                                } else {
+                                    showWarnTips(getString(R.string.toast_login_fail, code));
+                                }
+                            });
                         });
                     });
                 } else {
@@ -232,6 +236,10 @@ public class LoginActivity extends BaseActivity<ActivityLoginBinding> {
         // some brands kill process will not really kill process,
         // which cause login twice
         ZegoUserService userService = ZegoRoomManager.getInstance().userService;
+        // not set up yet when the activity goes before KeyCenter.json is loaded
+        if (userService == null || userService.localUserInfo == null) {
+            return;
+        }
         String userID = userService.localUserInfo.userID;
         userService.logout();
         CallStateManager.getInstance().setCallState(null, CallStateManager.TYPE_NO_CALL);
@@ -3,12 +3,15 @@ package im.zego.call.ui.setting;
 import android.os.Bundle;
 import android.view.View;
 import android.view.View.OnClickListener;
+import android.widget.CompoundButton;
+import android.widget.CompoundButton.OnCheckedChangeListener;
 import com.blankj.utilcode.util.ActivityUtils;
 import com.tencent.mmkv.MMKV;
 import im.zego.call.BuildConfig;
 import im.zego.call.R;
 import im.zego.call.databinding.ActivitySettingBinding;
 import im.zego.call.http.WebClientManager;
+import im.zego.call.token.ZegoTokenManager;
 import im.zego.call.ui.BaseActivity;
 import im.zego.call.ui.call.CallStateManager;
 import im.zego.call.ui.login.LoginActivity;
@@ -68,6 +71,18 @@ public class SettingActivity extends BaseActivity<ActivitySettingBinding> {
             }
         });
 
+        binding.fastDial.setChecked(MMKV.defaultMMKV().decodeBool("fastDial", false));
+        binding.fastDial.setOnCheckedChangeListener(new OnCheckedChangeListener() {
+            @Override
+            public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+                MMKV.defaultMMKV().encode("fastDial", isChecked);
+                ZegoUserService userService = ZegoRoomManager.getInstance().userService;
+                if (userService != null) {
+                    userService.setFastDialEnabled(isChecked);
+                }
+            }
+        });
+
         binding.logOut.setOnClickListener(new OnClickListener() {
             @Override
             public void onClick(View v) {
@@ -76,6 +91,7 @@ public class SettingActivity extends BaseActivity<ActivitySettingBinding> {
                 userService.logout();
                 CallStateManager.getInstance().setCallState(null,CallStateManager.TYPE_NO_CALL);
                 WebClientManager.getInstance().logout(userID, null);
+                ZegoTokenManager.getInstance().clear();
                 MMKV.defaultMMKV().encode("autoLogin", false);
                 ActivityUtils.finishToActivity(LoginActivity.class, false);
             }
@@ -0,0 +1,69 @@
+package im.zego.callsdk.benchmark;
+
+import im.zego.callsdk.auth.Base64;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The vendored Base64, at the size of a token (about 160 bytes) and around it.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class Base64Benchmark {
+
+    @Param({"16", "160", "1024"})
+    public int size;
+
+    private byte[] data;
+    private String encoded;
+    private char[] chars;
+
+    @Setup
+    public void setup() {
+        data = new byte[size];
+        new Random(size).nextBytes(data);
+        encoded = Base64.getEncoder().encodeToString(data);
+        chars = new char[2 + Base64.getEncoder().encodedLength(size)];
+    }
+
+    @Benchmark
+    public String encodeToString() {
+        return Base64.getEncoder().encodeToString(data);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return Base64.getEncoder().encode(data);
+    }
+
+    /**
+     * The way a token is built: a 2 characters prefix and the base64 in one reused buffer.
+     */
+    @Benchmark
+    public String encodeWithPrefix() {
+        chars[0] = '0';
+        chars[1] = '4';
+        int length = 2 + Base64.getEncoder().encode(data, 0, data.length, chars, 2);
+        return new String(chars, 0, length);
+    }
+
+    @Benchmark
+    public byte[] decodeString() {
+        return Base64.getDecoder().decode(encoded);
+    }
+}
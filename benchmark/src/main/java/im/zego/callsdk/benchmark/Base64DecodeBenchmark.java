@@ -0,0 +1,64 @@
+package im.zego.callsdk.benchmark;
+
+import im.zego.callsdk.auth.Base64Backend;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The Base64 decoders {@link Base64Backend#selected()} chooses from, on a token.
+ * <p>
+ * Description: Compare the backend scores with the {@code selected} one to check the choice made on this runtime.
+ * {@code jdkDirect} decodes a substring with java.util.Base64, the way the backends avoid, to tell the cost of the
+ * substring apart. The Android decoder only exists on a device.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class Base64DecodeBenchmark {
+
+    @Param({"VENDORED", "JDK"})
+    public String backend;
+
+    @Param({"160", "1024"})
+    public int size;
+
+    private Base64Backend decoder;
+    private String token;
+
+    @Setup
+    public void setup() {
+        decoder = Base64Backend.valueOf(backend);
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        token = "04" + java.util.Base64.getEncoder().encodeToString(data);
+    }
+
+    @Benchmark
+    public byte[] backend() {
+        return decoder.decode(token, 2);
+    }
+
+    @Benchmark
+    public byte[] selected() {
+        return Base64Backend.selected().decode(token, 2);
+    }
+
+    @Benchmark
+    public byte[] jdkDirect() {
+        return java.util.Base64.getDecoder().decode(token.substring(2));
+    }
+}
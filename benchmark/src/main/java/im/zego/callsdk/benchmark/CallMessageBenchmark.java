@@ -0,0 +1,183 @@
+package im.zego.callsdk.benchmark;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import im.zego.callsdk.model.ZegoCallMessage;
+import im.zego.callsdk.model.ZegoCallMessage.ContentBean;
+import im.zego.callsdk.model.ZegoCallMessage.UserInfoBean;
+import im.zego.callsdk.model.ZegoCallType;
+import im.zego.callsdk.model.ZegoResponseType;
+import im.zego.callsdk.utils.CustomTypeAdapterFactory;
+import im.zego.callsdk.utils.ZegoCallMessageCodec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The signaling messages, serialized and parsed through Gson as ZegoUserService used to, and through
+ * {@link ZegoCallMessageCodec} as it does now, in JSON and in the binary form. The payload sizes of both forms are
+ * printed at setup.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CallMessageBenchmark {
+
+    static final String SELF_USER_ID = "123456";
+    static final String PEER_USER_ID = "654321";
+
+    private Gson gson;
+    private TypeAdapter<ZegoResponseType> responseTypeAdapter;
+    private byte[] callBytes;
+    private byte[] responseBytes;
+    private byte[] binaryCallBytes;
+    private ZegoCallMessageCodec.Template template;
+
+    @Setup
+    public void setup() {
+        GsonBuilder builder = new GsonBuilder();
+        builder.registerTypeAdapterFactory(new CustomTypeAdapterFactory());
+        gson = builder.create();
+        responseTypeAdapter = gson.getAdapter(ZegoResponseType.class);
+        callBytes = gson.toJson(newCall()).getBytes(StandardCharsets.UTF_8);
+        ZegoCallMessage response = newMessage(ZegoCallMessage.RESPONSE_CALL);
+        response.content.responseType = ZegoResponseType.Accept;
+        responseBytes = gson.toJson(response).getBytes(StandardCharsets.UTF_8);
+        binaryCallBytes = ZegoCallMessageCodec.encodeBinary(newCall());
+        template = new ZegoCallMessageCodec.Template(PEER_USER_ID, "peer");
+        System.out.println("call payload: JSON " + callBytes.length + " bytes, binary " + binaryCallBytes.length
+            + " bytes");
+    }
+
+    @Benchmark
+    public byte[] serializeCall() {
+        return gson.toJson(newCall()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public ZegoCallMessage parseCall() {
+        return receive(callBytes);
+    }
+
+    @Benchmark
+    public ZegoCallMessage parseResponse() {
+        return receive(responseBytes);
+    }
+
+    /**
+     * Builds a message and parses it back, as one side of a call sends it and the other receives it.
+     */
+    @Benchmark
+    public ZegoCallMessage roundTrip() {
+        return receive(gson.toJson(newCall()).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public byte[] codecSerializeCall() {
+        return ZegoCallMessageCodec.encode(newCall());
+    }
+
+    @Benchmark
+    public ZegoCallMessage codecParseCall() {
+        ZegoCallMessage callMessage = ZegoCallMessageCodec.decode(callBytes);
+        return callMessage.target.contains(SELF_USER_ID) ? callMessage : null;
+    }
+
+    @Benchmark
+    public ZegoCallMessage codecRoundTrip() {
+        ZegoCallMessage callMessage = ZegoCallMessageCodec.decode(ZegoCallMessageCodec.encode(newCall()));
+        return callMessage.target.contains(SELF_USER_ID) ? callMessage : null;
+    }
+
+    @Benchmark
+    public byte[] binarySerializeCall() {
+        return ZegoCallMessageCodec.encodeBinary(newCall());
+    }
+
+    @Benchmark
+    public ZegoCallMessage binaryParseCall() {
+        ZegoCallMessage callMessage = ZegoCallMessageCodec.decode(binaryCallBytes);
+        return callMessage.target.contains(SELF_USER_ID) ? callMessage : null;
+    }
+
+    @Benchmark
+    public ZegoCallMessage binaryRoundTrip() {
+        ZegoCallMessage callMessage = ZegoCallMessageCodec.decode(ZegoCallMessageCodec.encodeBinary(newCall()));
+        return callMessage.target.contains(SELF_USER_ID) ? callMessage : null;
+    }
+
+    /**
+     * The call as ZegoUserService sends it, spliced into the template of the local user.
+     */
+    @Benchmark
+    public byte[] templateSerializeCall() {
+        return template.call(SELF_USER_ID, ZegoCallType.Video, 0);
+    }
+
+    @Benchmark
+    public byte[] templateBinarySerializeCall() {
+        return template.call(SELF_USER_ID, ZegoCallType.Video, ZegoCallMessageCodec.WIRE_VERSION);
+    }
+
+    /**
+     * A message addressed to someone else, dropped after reading its action and targets.
+     */
+    @Benchmark
+    public int peekForeignCall() {
+        return ZegoCallMessageCodec.peekAction(callBytes, PEER_USER_ID);
+    }
+
+    @Benchmark
+    public int binaryPeekForeignCall() {
+        return ZegoCallMessageCodec.peekAction(binaryCallBytes, PEER_USER_ID);
+    }
+
+    /**
+     * The enum adapter of CustomTypeAdapterFactory alone, as used for every enum field of a message.
+     */
+    @Benchmark
+    public ZegoResponseType readEnum() throws IOException {
+        return responseTypeAdapter.fromJson("2");
+    }
+
+    @Benchmark
+    public String writeEnum() {
+        return responseTypeAdapter.toJson(ZegoResponseType.Reject);
+    }
+
+    private ZegoCallMessage receive(byte[] message) {
+        ZegoCallMessage callMessage = gson.fromJson(new String(message), ZegoCallMessage.class);
+        return callMessage.target.contains(SELF_USER_ID) ? callMessage : null;
+    }
+
+    private static ZegoCallMessage newCall() {
+        ZegoCallMessage callMessage = newMessage(ZegoCallMessage.CALL);
+        callMessage.content.callType = ZegoCallType.Video;
+        return callMessage;
+    }
+
+    private static ZegoCallMessage newMessage(int actionType) {
+        ZegoCallMessage callMessage = new ZegoCallMessage();
+        callMessage.actionType = actionType;
+        callMessage.target = Collections.singletonList(SELF_USER_ID);
+        ContentBean contentBean = new ContentBean();
+        contentBean.userInfo = new UserInfoBean(PEER_USER_ID, "peer");
+        callMessage.content = contentBean;
+        return callMessage;
+    }
+}
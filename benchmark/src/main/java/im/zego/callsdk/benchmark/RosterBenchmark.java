@@ -0,0 +1,81 @@
+package im.zego.callsdk.benchmark;
+
+import im.zego.callsdk.model.ZegoUserInfo;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The room roster, updated the way ZegoUserService handles the member and attribute events.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RosterBenchmark {
+
+    @Param({"2", "8", "32"})
+    public int size;
+
+    private List<ZegoUserInfo> userList;
+    private ZegoUserInfo lastUser;
+
+    @Setup
+    public void setup() {
+        userList = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            userList.add(newUser("user" + i));
+        }
+        lastUser = userList.get(size - 1);
+    }
+
+    /**
+     * A member joins, a duplicate join is ignored, then the member leaves.
+     */
+    @Benchmark
+    public int joinAndLeave() {
+        ZegoUserInfo joinUser = newUser("joined");
+        for (int i = 0; i < 2; i++) {
+            if (!userList.contains(joinUser)) {
+                userList.add(joinUser);
+            }
+        }
+        userList.remove(joinUser);
+        return userList.size();
+    }
+
+    /**
+     * The attributes of the last member change.
+     */
+    @Benchmark
+    public ZegoUserInfo updateAttributes() {
+        for (ZegoUserInfo userInfo : userList) {
+            if (Objects.equals(userInfo.userID, lastUser.userID)) {
+                userInfo.mic = !userInfo.mic;
+                return userInfo;
+            }
+        }
+        return null;
+    }
+
+    private static ZegoUserInfo newUser(String userID) {
+        ZegoUserInfo userInfo = new ZegoUserInfo();
+        userInfo.userID = userID;
+        userInfo.userName = userID;
+        return userInfo;
+    }
+}
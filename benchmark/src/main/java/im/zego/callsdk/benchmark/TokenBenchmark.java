@@ -0,0 +1,124 @@
+package im.zego.callsdk.benchmark;
+
+import im.zego.callsdk.auth.ZegoTokenDecoder;
+import im.zego.callsdk.auth.ZegoTokenEngine;
+import im.zego.callsdk.auth.ZegoTokenEngine.Privileges;
+import im.zego.callsdk.auth.ZegoTokenEngine.RoomTokenRequest;
+import im.zego.callsdk.auth.ZegoTokenEngine.TokenInfo;
+import im.zego.callsdk.auth.ZegoTokenEngine.TokenPair;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Token minting and introspection.
+ * <p>
+ * Description: The batch benchmarks count one operation per token, so their score compares directly with the single
+ * mints.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenBenchmark {
+
+    static final long APP_ID = 1234567890L;
+    static final String SECRET = "0123456789abcdef0123456789abcdef";
+    static final int EFFECTIVE_TIME_IN_SECONDS = 60 * 60 * 24;
+    private static final int BATCH_SIZE = 256;
+
+    private Privileges privilege;
+    private List<String> userIds;
+    private List<RoomTokenRequest> requests;
+    private String zimToken;
+    private String rtcToken;
+
+    @Setup
+    public void setup() {
+        privilege = new Privileges();
+        privilege.canLoginRoom = true;
+        privilege.canPublishStream = true;
+        userIds = new ArrayList<>(BATCH_SIZE);
+        requests = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            userIds.add("user" + i);
+            requests.add(new RoomTokenRequest("room" + i, "user" + i, privilege));
+        }
+        zimToken = ZegoTokenEngine.generateZIMToken(APP_ID, "user", SECRET, EFFECTIVE_TIME_IN_SECONDS).data;
+        rtcToken = ZegoTokenEngine.generateRTCToken(APP_ID, "room", "user", privilege, SECRET,
+            EFFECTIVE_TIME_IN_SECONDS).data;
+    }
+
+    @Benchmark
+    public TokenInfo zimToken() {
+        return ZegoTokenEngine.generateZIMToken(APP_ID, "user", SECRET, EFFECTIVE_TIME_IN_SECONDS);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public TokenInfo zimToken4Threads() {
+        return zimToken();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public TokenInfo zimToken16Threads() {
+        return zimToken();
+    }
+
+    @Benchmark
+    public TokenInfo rtcToken() {
+        return ZegoTokenEngine.generateRTCToken(APP_ID, "room", "user", privilege, SECRET,
+            EFFECTIVE_TIME_IN_SECONDS);
+    }
+
+    @Benchmark
+    public TokenPair tokenPair() {
+        return ZegoTokenEngine.generateTokens(APP_ID, "room", "user", privilege, SECRET, EFFECTIVE_TIME_IN_SECONDS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<TokenInfo> zimTokensBatch() {
+        return ZegoTokenEngine.generateZIMTokens(APP_ID, userIds, SECRET, EFFECTIVE_TIME_IN_SECONDS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void zimTokensSequential(Blackhole blackhole) {
+        for (String userId : userIds) {
+            blackhole.consume(ZegoTokenEngine.generateZIMToken(APP_ID, userId, SECRET, EFFECTIVE_TIME_IN_SECONDS));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<TokenInfo> rtcTokensBatch() {
+        return ZegoTokenEngine.generateRTCTokens(APP_ID, requests, SECRET, EFFECTIVE_TIME_IN_SECONDS);
+    }
+
+    @Benchmark
+    public long peekExpireTime() {
+        return ZegoTokenDecoder.peekExpireTime(zimToken);
+    }
+
+    @Benchmark
+    public ZegoTokenDecoder.DecodedToken verify() {
+        return ZegoTokenDecoder.verify(rtcToken, SECRET);
+    }
+}
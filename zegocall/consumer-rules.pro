@@ -0,0 +1,3 @@
+# the Base64 decoders of the platform, loaded by name
+-keep class im.zego.callsdk.auth.JdkBase64 { <init>(); }
+-keep class im.zego.callsdk.auth.AndroidBase64 { <init>(); }
@@ -0,0 +1,13 @@
+package im.zego.callsdk.auth;
+
+/**
+ * The {@link Base64Backend#ANDROID} decoder, loaded only where android.util.Base64 exists.
+ */
+final class AndroidBase64 implements Base64Backend.Decoder {
+
+    @Override
+    public byte[] decode(String src, int off) {
+        return android.util.Base64.decode(Base64Backend.ascii(src, off), 0, src.length() - off,
+            android.util.Base64.DEFAULT);
+    }
+}
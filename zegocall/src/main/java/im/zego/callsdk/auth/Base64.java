@@ -25,8 +25,6 @@
 
 package im.zego.callsdk.auth;
 
-import android.os.Build;
-import androidx.annotation.RequiresApi;
 import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -248,6 +246,18 @@ public class Base64 {
             return len;
         }
 
+        /**
+         * Returns the number of characters this encoder produces for the
+         * given number of input bytes, so that the invoker can size the
+         * output of the {@code encode} methods taking an output offset.
+         *
+         * @param srclen the number of bytes to encode
+         * @return the length of the encoded output
+         */
+        public int encodedLength(int srclen) {
+            return outLength(srclen);
+        }
+
         /**
          * Encodes all bytes from the specified byte array into a newly-allocated
          * byte array using the {@link Base64} encoding scheme. The returned byte
@@ -260,7 +270,7 @@ public class Base64 {
         public byte[] encode(byte[] src) {
             int len = outLength(src.length);          // dst array size
             byte[] dst = new byte[len];
-            int ret = encode0(src, 0, src.length, dst);
+            int ret = encode0(src, 0, src.length, dst, 0);
             if (ret != dst.length)
                 return Arrays.copyOf(dst, ret);
             return dst;
@@ -287,7 +297,107 @@ public class Base64 {
             if (dst.length < len)
                 throw new IllegalArgumentException(
                         "Output byte array is too small for encoding all input bytes");
-            return encode0(src, 0, src.length, dst);
+            return encode0(src, 0, src.length, dst, 0);
+        }
+
+        /**
+         * Encodes {@code len} bytes from the specified byte array, starting at
+         * offset {@code off}, using the {@link Base64} encoding scheme, writing
+         * the resulting bytes to the given output byte array, starting at
+         * offset {@code dstOff}.
+         *
+         * <p> This lets the invoker reuse its output array and put the encoded
+         * bytes after a prefix of its own, see {@link #encodedLength}.
+         *
+         * @param src    the byte array to encode
+         * @param off    the offset of the first byte to encode
+         * @param len    the number of bytes to encode
+         * @param dst    the output byte array
+         * @param dstOff the offset of the first byte written
+         * @return The number of bytes written to the output byte array
+         * @throws IllegalArgumentException if {@code dst} does not have enough
+         *                                  space after {@code dstOff} for
+         *                                  encoding all input bytes.
+         */
+        public int encode(byte[] src, int off, int len, byte[] dst, int dstOff) {
+            checkRange(src.length, off, len);
+            if (dstOff < 0 || dst.length - dstOff < outLength(len))
+                throw new IllegalArgumentException(
+                        "Output byte array is too small for encoding all input bytes");
+            return encode0(src, off, off + len, dst, dstOff);
+        }
+
+        /**
+         * Encodes {@code len} bytes from the specified byte array, starting at
+         * offset {@code off}, using the {@link Base64} encoding scheme, writing
+         * the resulting characters to the given output char array, starting at
+         * offset {@code dstOff}.
+         *
+         * <p> The output can be turned into a String with
+         * {@link String#String(char[], int, int)} without any intermediate
+         * byte array.
+         *
+         * @param src    the byte array to encode
+         * @param off    the offset of the first byte to encode
+         * @param len    the number of bytes to encode
+         * @param dst    the output char array
+         * @param dstOff the offset of the first char written
+         * @return The number of chars written to the output char array
+         * @throws IllegalArgumentException if {@code dst} does not have enough
+         *                                  space after {@code dstOff} for
+         *                                  encoding all input bytes.
+         */
+        public int encode(byte[] src, int off, int len, char[] dst, int dstOff) {
+            checkRange(src.length, off, len);
+            if (dstOff < 0 || dst.length - dstOff < outLength(len))
+                throw new IllegalArgumentException(
+                        "Output char array is too small for encoding all input bytes");
+            return encodeChars0(src, off, off + len, dst, dstOff);
+        }
+
+        /**
+         * Encodes all remaining bytes from the specified source buffer into
+         * the remaining space of the destination buffer using the
+         * {@link Base64} encoding scheme.
+         * <p>
+         * Upon return, the source buffer's position will be updated to its
+         * limit and the destination buffer's position will be advanced by the
+         * number of encoded bytes.
+         *
+         * @param src the source ByteBuffer to encode
+         * @param dst the destination ByteBuffer
+         * @return The number of bytes written to the destination buffer
+         * @throws IllegalArgumentException if {@code dst} does not have enough
+         *                                  remaining space for encoding all
+         *                                  input bytes.
+         */
+        public int encode(ByteBuffer src, ByteBuffer dst) {
+            int len = outLength(src.remaining());
+            if (dst.remaining() < len)
+                throw new IllegalArgumentException(
+                        "Output byte buffer is too small for encoding all input bytes");
+            byte[] srcArray;
+            int off;
+            if (src.hasArray()) {
+                srcArray = src.array();
+                off = src.arrayOffset() + src.position();
+            } else {
+                srcArray = new byte[src.remaining()];
+                src.duplicate().get(srcArray);
+                off = 0;
+            }
+            int end = off + src.remaining();
+            int ret;
+            if (dst.hasArray()) {
+                ret = encode0(srcArray, off, end, dst.array(), dst.arrayOffset() + dst.position());
+                dst.position(dst.position() + ret);
+            } else {
+                byte[] encoded = new byte[len];
+                ret = encode0(srcArray, off, end, encoded, 0);
+                dst.put(encoded, 0, ret);
+            }
+            src.position(src.limit());
+            return ret;
         }
 
         /**
@@ -333,12 +443,12 @@ public class Base64 {
                 ret = encode0(buffer.array(),
                         buffer.arrayOffset() + buffer.position(),
                         buffer.arrayOffset() + buffer.limit(),
-                        dst);
+                        dst, 0);
                 buffer.position(buffer.limit());
             } else {
                 byte[] src = new byte[buffer.remaining()];
                 buffer.get(src);
-                ret = encode0(src, 0, src.length, dst);
+                ret = encode0(src, 0, src.length, dst, 0);
             }
             if (ret != dst.length)
                 dst = Arrays.copyOf(dst, ret);
@@ -382,14 +492,14 @@ public class Base64 {
             return new Encoder(isURL, newline, linemax, false);
         }
 
-        private int encode0(byte[] src, int off, int end, byte[] dst) {
+        private int encode0(byte[] src, int off, int end, byte[] dst, int dstOff) {
             char[] base64 = isURL ? toBase64URL : toBase64;
             int sp = off;
             int slen = (end - off) / 3 * 3;
             int sl = off + slen;
             if (linemax > 0 && slen > linemax / 4 * 3)
                 slen = linemax / 4 * 3;
-            int dp = 0;
+            int dp = dstOff;
             while (sp < sl) {
                 int sl0 = Math.min(sp + slen, sl);
                 for (int sp0 = sp, dp0 = dp; sp0 < sl0; ) {
@@ -428,7 +538,63 @@ public class Base64 {
                     }
                 }
             }
-            return dp;
+            return dp - dstOff;
+        }
+
+        // the same as encode0, writing chars
+        private int encodeChars0(byte[] src, int off, int end, char[] dst, int dstOff) {
+            char[] base64 = isURL ? toBase64URL : toBase64;
+            int sp = off;
+            int slen = (end - off) / 3 * 3;
+            int sl = off + slen;
+            if (linemax > 0 && slen > linemax / 4 * 3)
+                slen = linemax / 4 * 3;
+            int dp = dstOff;
+            while (sp < sl) {
+                int sl0 = Math.min(sp + slen, sl);
+                for (int sp0 = sp, dp0 = dp; sp0 < sl0; ) {
+                    int bits = (src[sp0++] & 0xff) << 16 |
+                            (src[sp0++] & 0xff) << 8 |
+                            (src[sp0++] & 0xff);
+                    dst[dp0++] = base64[(bits >>> 18) & 0x3f];
+                    dst[dp0++] = base64[(bits >>> 12) & 0x3f];
+                    dst[dp0++] = base64[(bits >>> 6) & 0x3f];
+                    dst[dp0++] = base64[bits & 0x3f];
+                }
+                int dlen = (sl0 - sp) / 3 * 4;
+                dp += dlen;
+                sp = sl0;
+                if (dlen == linemax && sp < end) {
+                    for (byte b : newline) {
+                        dst[dp++] = (char) b;
+                    }
+                }
+            }
+            if (sp < end) {               // 1 or 2 leftover bytes
+                int b0 = src[sp++] & 0xff;
+                dst[dp++] = base64[b0 >> 2];
+                if (sp == end) {
+                    dst[dp++] = base64[(b0 << 4) & 0x3f];
+                    if (doPadding) {
+                        dst[dp++] = '=';
+                        dst[dp++] = '=';
+                    }
+                } else {
+                    int b1 = src[sp++] & 0xff;
+                    dst[dp++] = base64[(b0 << 4) & 0x3f | (b1 >> 4)];
+                    dst[dp++] = base64[(b1 << 2) & 0x3f];
+                    if (doPadding) {
+                        dst[dp++] = '=';
+                    }
+                }
+            }
+            return dp - dstOff;
+        }
+
+        private static void checkRange(int length, int off, int len) {
+            if (off < 0 || len < 0 || off > length - len)
+                throw new IndexOutOfBoundsException(
+                        "off=" + off + ", len=" + len + ", length=" + length);
         }
     }
 
@@ -497,6 +663,27 @@ public class Base64 {
             fromBase64URL['='] = -2;
         }
 
+        /**
+         * Wide lookup tables of the bulk decoder, one per position in a
+         * 4-byte unit, holding the 6-bit values already shifted into place.
+         * A whole unit is decoded by OR-ing four lookups. Characters outside
+         * the alphabet, padding included, map to -1, so a unit that is not
+         * plain alphabet yields a negative value.
+         */
+        private static final int[][] bulkBase64 = bulkTables(fromBase64);
+        private static final int[][] bulkBase64URL = bulkTables(fromBase64URL);
+
+        private static int[][] bulkTables(int[] base64) {
+            int[][] tables = new int[4][256];
+            for (int i = 0; i < 4; i++) {
+                int shift = 18 - 6 * i;
+                for (int c = 0; c < 256; c++) {
+                    tables[i][c] = base64[c] < 0 ? -1 : base64[c] << shift;
+                }
+            }
+            return tables;
+        }
+
         static final Decoder RFC4648 = new Decoder(false, false);
         static final Decoder RFC4648_URLSAFE = new Decoder(true, false);
         static final Decoder RFC2045 = new Decoder(false, true);
@@ -513,7 +700,7 @@ public class Base64 {
          */
         public byte[] decode(byte[] src) {
             byte[] dst = new byte[outLength(src, 0, src.length)];
-            int ret = decode0(src, 0, src.length, dst);
+            int ret = decode0(src, 0, src.length, dst, 0);
             if (ret != dst.length) {
                 dst = Arrays.copyOf(dst, ret);
             }
@@ -531,12 +718,65 @@ public class Base64 {
          * @return A newly-allocated byte array containing the decoded bytes.
          * @throws IllegalArgumentException if {@code src} is not in valid Base64 scheme
          */
-        @RequiresApi(api = Build.VERSION_CODES.KITKAT)
         public byte[] decode(String src) {
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
-                return decode(src.getBytes(StandardCharsets.ISO_8859_1));
+            return decode(src, 0, src.length());
+        }
+
+        /**
+         * Decodes {@code len} characters of a Base64 encoded char sequence,
+         * starting at offset {@code off}, into a newly-allocated byte array
+         * using the {@link Base64} encoding scheme.
+         *
+         * <p> The basic and the URL decoders read the characters in place,
+         * without first copying them into a byte array.
+         *
+         * @param src the char sequence to decode
+         * @param off the offset of the first character to decode
+         * @param len the number of characters to decode
+         * @return A newly-allocated byte array containing the decoded bytes.
+         * @throws IllegalArgumentException if {@code src} is not in valid Base64 scheme
+         */
+        public byte[] decode(CharSequence src, int off, int len) {
+            if (off < 0 || len < 0 || off > src.length() - len)
+                throw new IndexOutOfBoundsException(
+                        "off=" + off + ", len=" + len + ", length=" + src.length());
+            if (isMIME) {
+                return decode(src.subSequence(off, off + len).toString()
+                        .getBytes(StandardCharsets.ISO_8859_1));
             }
-            return null;
+            int sl = off + len;
+            byte[] dst = new byte[outLength(src, off, sl)];
+            int[][] tables = isURL ? bulkBase64URL : bulkBase64;
+            int[] t0 = tables[0], t1 = tables[1], t2 = tables[2], t3 = tables[3];
+            int sp = off;
+            int dp = 0;
+            // the final unit may carry padding, it is left to decode0
+            while (sp < sl - 4) {
+                char c0 = src.charAt(sp);
+                char c1 = src.charAt(sp + 1);
+                char c2 = src.charAt(sp + 2);
+                char c3 = src.charAt(sp + 3);
+                if ((c0 | c1 | c2 | c3) > 0xff)
+                    break;
+                int bits = t0[c0] | t1[c1] | t2[c2] | t3[c3];
+                if (bits < 0)
+                    break;
+                dst[dp++] = (byte) (bits >> 16);
+                dst[dp++] = (byte) (bits >> 8);
+                dst[dp++] = (byte) bits;
+                sp += 4;
+            }
+            byte[] tail = new byte[sl - sp];
+            for (int i = 0; i < tail.length; i++) {
+                char c = src.charAt(sp + i);
+                // as getBytes(ISO_8859_1) would, an unmappable char becomes an illegal byte
+                tail[i] = (byte) (c > 0xff ? '?' : c);
+            }
+            dp += decode0(tail, 0, tail.length, dst, dp);
+            if (dp != dst.length) {
+                dst = Arrays.copyOf(dst, dp);
+            }
+            return dst;
         }
 
         /**
@@ -564,7 +804,7 @@ public class Base64 {
             if (dst.length < len)
                 throw new IllegalArgumentException(
                         "Output byte array is too small for decoding all input bytes");
-            return decode0(src, 0, src.length, dst);
+            return decode0(src, 0, src.length, dst, 0);
         }
 
         /**
@@ -601,7 +841,7 @@ public class Base64 {
                     sl = src.length;
                 }
                 byte[] dst = new byte[outLength(src, sp, sl)];
-                return ByteBuffer.wrap(dst, 0, decode0(src, sp, sl, dst));
+                return ByteBuffer.wrap(dst, 0, decode0(src, sp, sl, dst, 0));
             } catch (IllegalArgumentException iae) {
                 buffer.position(pos0);
                 throw iae;
@@ -626,6 +866,27 @@ public class Base64 {
             return new DecInputStream(is, isURL ? fromBase64URL : fromBase64, isMIME);
         }
 
+        /**
+         * Decodes the 4 characters of a basic base64 string starting at
+         * {@code off} into their 24 bits, without allocating anything.
+         *
+         * @param src the encoded characters
+         * @param off the offset of the 4-character unit
+         * @return the 24 decoded bits, or -1 if a character is not in the
+         * base64 alphabet
+         */
+        static int decodeUnit(CharSequence src, int off) {
+            int bits = 0;
+            for (int i = off; i < off + 4; i++) {
+                char c = src.charAt(i);
+                int b = c < 256 ? fromBase64[c] : -1;
+                if (b < 0)
+                    return -1;
+                bits = bits << 6 | b;
+            }
+            return bits;
+        }
+
         private int outLength(byte[] src, int sp, int sl) {
             int[] base64 = isURL ? fromBase64URL : fromBase64;
             int paddings = 0;
@@ -664,9 +925,49 @@ public class Base64 {
             return 3 * ((len + 3) / 4) - paddings;
         }
 
-        private int decode0(byte[] src, int sp, int sl, byte[] dst) {
+        // the length of a basic or URL encoded char sequence, see outLength
+        private int outLength(CharSequence src, int sp, int sl) {
+            int paddings = 0;
+            int len = sl - sp;
+            if (len == 0)
+                return 0;
+            if (len < 2)
+                throw new IllegalArgumentException(
+                        "Input byte[] should at least have 2 bytes for base64 bytes");
+            if (src.charAt(sl - 1) == '=') {
+                paddings++;
+                if (src.charAt(sl - 2) == '=')
+                    paddings++;
+            }
+            if (paddings == 0 && (len & 0x3) != 0)
+                paddings = 4 - (len & 0x3);
+            return 3 * ((len + 3) / 4) - paddings;
+        }
+
+        private int decode0(byte[] src, int sp, int sl, byte[] dst, int dstOff) {
             int[] base64 = isURL ? fromBase64URL : fromBase64;
-            int dp = 0;
+            int dp = dstOff;
+            if (!isMIME) {
+                // bulk decode two units at a time, the final unit may carry
+                // padding and is left to the byte-at-a-time loop below
+                int[][] tables = isURL ? bulkBase64URL : bulkBase64;
+                int[] t0 = tables[0], t1 = tables[1], t2 = tables[2], t3 = tables[3];
+                while (sp < sl - 8) {
+                    int bits0 = t0[src[sp] & 0xff] | t1[src[sp + 1] & 0xff] |
+                            t2[src[sp + 2] & 0xff] | t3[src[sp + 3] & 0xff];
+                    int bits1 = t0[src[sp + 4] & 0xff] | t1[src[sp + 5] & 0xff] |
+                            t2[src[sp + 6] & 0xff] | t3[src[sp + 7] & 0xff];
+                    if ((bits0 | bits1) < 0)
+                        break;
+                    dst[dp++] = (byte) (bits0 >> 16);
+                    dst[dp++] = (byte) (bits0 >> 8);
+                    dst[dp++] = (byte) bits0;
+                    dst[dp++] = (byte) (bits1 >> 16);
+                    dst[dp++] = (byte) (bits1 >> 8);
+                    dst[dp++] = (byte) bits1;
+                    sp += 8;
+                }
+            }
             int bits = 0;
             int shiftto = 18;       // pos of first byte of 4-byte atom
             while (sp < sl) {
@@ -721,7 +1022,7 @@ public class Base64 {
                 throw new IllegalArgumentException(
                         "Input byte array has incorrect ending byte at " + sp);
             }
-            return dp;
+            return dp - dstOff;
         }
     }
 
@@ -0,0 +1,227 @@
+package im.zego.callsdk.auth;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The Base64 decoders a token can be decoded with.
+ * <p>
+ * Description: Which decoder is fastest depends on the runtime: the JVM has intrinsics for java.util.Base64, ART only
+ * has it from Android 8.0 on and android.util.Base64 is plain Java. {@link #calibrate()} times every available decoder
+ * on a token sized input on a background thread and keeps the fastest one, on the JVM as on Android, and
+ * {@link #selected()} returns the vendored decoder until it is done. The system property {@code zego.base64.backend}
+ * forces a decoder by name. Each platform decoder is a small class loaded by name only when the platform class it
+ * calls exists, so this class loads on any runtime and the decoders are called directly. They read the characters
+ * after the offset from a buffer of the thread, the token is never copied into a substring.
+ */
+public enum Base64Backend {
+
+    /**
+     * The vendored {@link Base64}, decoding whole units from its wide lookup tables.
+     */
+    VENDORED {
+        @Override
+        public byte[] decode(String src, int off) {
+            return Base64.getDecoder().decode(src, off, src.length() - off);
+        }
+    },
+
+    /**
+     * java.util.Base64, on the JVM and on Android 8.0 and above.
+     */
+    JDK {
+        private final Decoder decoder = load("java.util.Base64", "im.zego.callsdk.auth.JdkBase64");
+
+        @Override
+        public boolean isAvailable() {
+            return decoder != null;
+        }
+
+        @Override
+        public byte[] decode(String src, int off) {
+            return decoder.decode(src, off);
+        }
+    },
+
+    /**
+     * android.util.Base64, on Android.
+     */
+    ANDROID {
+        private final Decoder decoder = load("android.util.Base64", "im.zego.callsdk.auth.AndroidBase64");
+
+        @Override
+        public boolean isAvailable() {
+            return decoder != null;
+        }
+
+        @Override
+        public byte[] decode(String src, int off) {
+            return decoder.decode(src, off);
+        }
+    };
+
+    public static final String PROPERTY = "zego.base64.backend";
+
+    // a token is about 200 characters
+    private static final int SAMPLE_LENGTH = 150;
+    private static final int CALIBRATION_ROUNDS = 5;
+    private static final int DECODES_PER_ROUND = 64;
+    private static final int MIN_ASCII_BUFFER_LENGTH = 256;
+
+    // the characters of the token being decoded as bytes, for the platform decoders that only read bytes
+    private static final ThreadLocal<byte[]> asciiBuffer = new ThreadLocal<>();
+
+    /**
+     * A platform decoder.
+     */
+    interface Decoder {
+
+        byte[] decode(String src, int off);
+    }
+
+    /**
+     * @return whether the decoder exists on the current runtime.
+     */
+    public boolean isAvailable() {
+        return true;
+    }
+
+    /**
+     * Decode the Base64 characters of a string from the given offset to its end.
+     *
+     * @throws IllegalArgumentException if the characters are not valid Base64.
+     */
+    public abstract byte[] decode(String src, int off);
+
+    private static final AtomicBoolean calibrationStarted = new AtomicBoolean();
+    // null until the calibration is done
+    private static volatile Base64Backend selected;
+
+    /**
+     * Get the fastest decoder of the current runtime, {@link #VENDORED} while the decoders are being timed. The first
+     * call starts the calibration if it is not started yet.
+     * <p>
+     * Call this method at: Any time
+     */
+    public static Base64Backend selected() {
+        Base64Backend backend = selected;
+        if (backend == null) {
+            calibrate();
+            backend = selected;
+        }
+        return backend == null ? VENDORED : backend;
+    }
+
+    /**
+     * Time the decoders on a background thread, or pick the forced one at once. Only the first call does anything.
+     * <p>
+     * Call this method at: When the SDK is initialized
+     */
+    public static void calibrate() {
+        if (!calibrationStarted.compareAndSet(false, true)) {
+            return;
+        }
+        Base64Backend forced = forced();
+        if (forced != null) {
+            selected = forced;
+            return;
+        }
+        Thread thread = new Thread(() -> selected = select(), "base64-calibration");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    private static Base64Backend forced() {
+        String forced = System.getProperty(PROPERTY);
+        if (forced != null) {
+            for (Base64Backend backend : values()) {
+                if (backend.name().equalsIgnoreCase(forced) && backend.isAvailable()) {
+                    return backend;
+                }
+            }
+        }
+        return null;
+    }
+
+    static Base64Backend select() {
+        Base64Backend forced = forced();
+        if (forced != null) {
+            return forced;
+        }
+
+        byte[] sample = new byte[SAMPLE_LENGTH];
+        for (int i = 0; i < sample.length; i++) {
+            sample[i] = (byte) (i * 31 + 7);
+        }
+        String encoded = "04" + Base64.getEncoder().encodeToString(sample);
+
+        Base64Backend fastest = VENDORED;
+        long fastestTime = Long.MAX_VALUE;
+        for (Base64Backend backend : values()) {
+            long time = backend.time(encoded, sample);
+            if (time < fastestTime) {
+                fastest = backend;
+                fastestTime = time;
+            }
+        }
+        return fastest;
+    }
+
+    /**
+     * @return the best time of a round of decodes, Long.MAX_VALUE if the decoder is not usable.
+     */
+    private long time(String encoded, byte[] expected) {
+        if (!isAvailable()) {
+            return Long.MAX_VALUE;
+        }
+        long best = Long.MAX_VALUE;
+        try {
+            if (!Arrays.equals(decode(encoded, 2), expected)) {
+                return Long.MAX_VALUE;
+            }
+            // the first rounds also warm the decoder up, only the best round counts
+            for (int round = 0; round < CALIBRATION_ROUNDS; round++) {
+                long start = System.nanoTime();
+                for (int i = 0; i < DECODES_PER_ROUND; i++) {
+                    decode(encoded, 2);
+                }
+                best = Math.min(best, System.nanoTime() - start);
+            }
+        } catch (RuntimeException e) {
+            // a stub or a broken platform decoder
+            return Long.MAX_VALUE;
+        }
+        return best;
+    }
+
+    /**
+     * Copy the characters of a string from the given offset to its end into the buffer of the thread, one byte each. A
+     * character out of ASCII becomes a byte no decoder accepts.
+     *
+     * @return the buffer, the characters are at its start.
+     */
+    static byte[] ascii(String src, int off) {
+        int length = src.length() - off;
+        byte[] buffer = asciiBuffer.get();
+        if (buffer == null || buffer.length < length) {
+            buffer = new byte[Math.max(length, MIN_ASCII_BUFFER_LENGTH)];
+            asciiBuffer.set(buffer);
+        }
+        for (int i = 0; i < length; i++) {
+            char c = src.charAt(off + i);
+            buffer[i] = c < 0x80 ? (byte) c : (byte) '?';
+        }
+        return buffer;
+    }
+
+    private static Decoder load(String platformClassName, String decoderClassName) {
+        try {
+            Class.forName(platformClassName);
+            return (Decoder) Class.forName(decoderClassName).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            // not on this runtime
+            return null;
+        }
+    }
+}
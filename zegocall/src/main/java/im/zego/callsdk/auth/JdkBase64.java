@@ -0,0 +1,24 @@
+package im.zego.callsdk.auth;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The {@link Base64Backend#JDK} decoder, loaded only where java.util.Base64 exists.
+ */
+@SuppressWarnings("NewApi")
+final class JdkBase64 implements Base64Backend.Decoder {
+
+    private final java.util.Base64.Decoder decoder = java.util.Base64.getDecoder();
+
+    @Override
+    public byte[] decode(String src, int off) {
+        ByteBuffer decoded = decoder.decode(ByteBuffer.wrap(Base64Backend.ascii(src, off), 0, src.length() - off));
+        byte[] bytes = decoded.array();
+        if (decoded.arrayOffset() == 0 && decoded.position() == 0 && decoded.remaining() == bytes.length) {
+            return bytes;
+        }
+        int start = decoded.arrayOffset() + decoded.position();
+        return Arrays.copyOfRange(bytes, start, start + decoded.remaining());
+    }
+}
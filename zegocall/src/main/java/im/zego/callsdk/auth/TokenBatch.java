@@ -0,0 +1,109 @@
+package im.zego.callsdk.auth;
+
+import im.zego.callsdk.auth.ZegoTokenEngine.ErrorCode;
+import im.zego.callsdk.auth.ZegoTokenEngine.TokenInfo;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fans a batch of token mints out across the cores.
+ * <p>
+ * Description: The batch is cut into one contiguous slice per worker and the calling thread mints a slice too. Every
+ * worker keeps its own cipher and payload buffer, so the slices share nothing but the result array.
+ */
+final class TokenBatch {
+
+    /**
+     * Mints one item of a batch.
+     */
+    interface Minter<T> {
+
+        TokenInfo mint(T item);
+    }
+
+    // below this size the hand-off costs more than the parallel mint saves
+    private static final int MIN_PARALLEL_SIZE = 64;
+
+    private TokenBatch() {
+    }
+
+    /**
+     * Mint every item of the batch.
+     *
+     * @return the tokens in the order of the items, an item that failed carries its own error.
+     */
+    static <T> List<TokenInfo> mint(List<T> items, Minter<T> minter) {
+        int size = items.size();
+        TokenInfo[] results = new TokenInfo[size];
+        int workers = Math.min(Workers.COUNT + 1, size / MIN_PARALLEL_SIZE);
+        if (workers <= 1) {
+            mintSlice(items, 0, size, minter, results);
+            return Arrays.asList(results);
+        }
+
+        int sliceSize = (size + workers - 1) / workers;
+        int slices = (size + sliceSize - 1) / sliceSize;
+        CountDownLatch done = new CountDownLatch(slices - 1);
+        for (int start = sliceSize; start < size; start += sliceSize) {
+            final int from = start;
+            final int to = Math.min(start + sliceSize, size);
+            Workers.EXECUTOR.execute(() -> {
+                try {
+                    mintSlice(items, from, to, minter, results);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        mintSlice(items, 0, sliceSize, minter, results);
+
+        boolean interrupted = false;
+        while (true) {
+            try {
+                done.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return Arrays.asList(results);
+    }
+
+    private static <T> void mintSlice(List<T> items, int from, int to, Minter<T> minter, TokenInfo[] results) {
+        for (int i = from; i < to; i++) {
+            TokenInfo token;
+            try {
+                token = minter.mint(items.get(i));
+            } catch (RuntimeException e) {
+                token = new TokenInfo();
+                token.error.code = ErrorCode.OTHER;
+                token.error.message = "" + e;
+            }
+            results[i] = token;
+        }
+    }
+
+    private static final class Workers {
+
+        static final int COUNT = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+        static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(COUNT, new ThreadFactory() {
+            private final AtomicInteger index = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "zego-token-" + index.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+}
@@ -0,0 +1,171 @@
+package im.zego.callsdk.auth;
+
+import java.security.GeneralSecurityException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Shared encryption state of the token assistants.
+ * <p>
+ * Description: The key spec is built once per secret and every thread keeps its own {@link Cipher}, so minting a
+ * token neither looks up the provider nor rebuilds the key schedule as long as the secret does not change. IVs and
+ * nonces all come from {@link ThreadLocalRandom}, which needs no locking and no allocation per token. The packed
+ * bytes and the token characters are also written into buffers of the thread, leaving the token string as the only
+ * allocation that grows with the payload.
+ */
+final class TokenCipher {
+
+    static final int IV_LENGTH = 16;
+    static final int SECRET_LENGTH = 32;
+
+    private static final String TRANSFORMATION = "AES/CBC/PKCS5Padding";
+    private static final int MAX_CACHED_KEYS = 16;
+
+    private static final ConcurrentHashMap<String, SecretKeySpec> keyCache = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<TokenCipher> threadCipher = new ThreadLocal<TokenCipher>() {
+        @Override
+        protected TokenCipher initialValue() {
+            return new TokenCipher();
+        }
+    };
+
+    private final byte[] ivBytes = new byte[IV_LENGTH];
+    private Cipher cipher;
+    // reused by every token minted on the thread, grown when a payload does not fit
+    private byte[] packed = new byte[256];
+    private char[] chars = new char[384];
+
+    private TokenCipher() {
+    }
+
+    /**
+     * Get the cipher state bound to the calling thread.
+     */
+    static TokenCipher current() {
+        return threadCipher.get();
+    }
+
+    /**
+     * Fill the given array with a random IV.
+     */
+    static void nextIv(byte[] ivBytes) {
+        ThreadLocalRandom.current().nextBytes(ivBytes);
+    }
+
+    static int nextIntNonce() {
+        return ThreadLocalRandom.current().nextInt();
+    }
+
+    static long nextLongNonce() {
+        return ThreadLocalRandom.current().nextLong();
+    }
+
+    /**
+     * Encrypt the payload with a fresh IV and pack it in the token layout.
+     * <p>
+     * Description: The layout is the big-endian expire time (8 bytes), the IV and the encrypted payload, each of them
+     * prefixed with its 2 bytes length. The cipher writes straight into the packed buffer of the thread, which stays
+     * valid until the next seal.
+     *
+     * @param payload    the written payload.
+     * @param secret     the 32 characters server secret.
+     * @param expireTime the expire time in seconds.
+     * @return the length of the packed bytes, ready for {@link #encode}.
+     */
+    int seal(TokenWriter payload, String secret, long expireTime) throws GeneralSecurityException {
+        nextIv(ivBytes);
+        Cipher cipher = init(Cipher.ENCRYPT_MODE, secret, new IvParameterSpec(ivBytes));
+        int capacity = 12 + IV_LENGTH + cipher.getOutputSize(payload.size());
+        if (packed.length < capacity) {
+            packed = new byte[Math.max(capacity, packed.length * 2)];
+        }
+        int pos = putLong(packed, 0, expireTime);
+        pos = putShort(packed, pos, IV_LENGTH);
+        System.arraycopy(ivBytes, 0, packed, pos, IV_LENGTH);
+        pos += IV_LENGTH;
+        int lengthPos = pos;
+        pos += 2;
+        int written = cipher.doFinal(payload.buffer(), 0, payload.size(), packed, pos);
+        putShort(packed, lengthPos, written);
+        return pos + written;
+    }
+
+    /**
+     * Build the token string from the version flag and the base64 of the last sealed bytes.
+     * <p>
+     * Description: Both are written into the char buffer of the thread, so the returned string is the only copy.
+     *
+     * @param versionFlag  the version flag of the token format.
+     * @param packedLength the length returned by {@link #seal}.
+     */
+    String encode(String versionFlag, int packedLength) {
+        Base64.Encoder encoder = Base64.getEncoder();
+        int flagLength = versionFlag.length();
+        int capacity = flagLength + encoder.encodedLength(packedLength);
+        if (chars.length < capacity) {
+            chars = new char[Math.max(capacity, chars.length * 2)];
+        }
+        versionFlag.getChars(0, flagLength, chars, 0);
+        int length = flagLength + encoder.encode(packed, 0, packedLength, chars, flagLength);
+        return new String(chars, 0, length);
+    }
+
+    /**
+     * Decrypt the payload of a packed token.
+     *
+     * @param packed        the packed token bytes.
+     * @param ivOffset      the offset of the 16 bytes IV.
+     * @param contentOffset the offset of the encrypted payload.
+     * @param contentLength the length of the encrypted payload.
+     * @param secret        the 32 characters server secret.
+     * @return the plain payload bytes.
+     */
+    byte[] open(byte[] packed, int ivOffset, int contentOffset, int contentLength, String secret)
+        throws GeneralSecurityException {
+        Cipher cipher = init(Cipher.DECRYPT_MODE, secret, new IvParameterSpec(packed, ivOffset, IV_LENGTH));
+        return cipher.doFinal(packed, contentOffset, contentLength);
+    }
+
+    private Cipher init(int mode, String secret, IvParameterSpec iv) throws GeneralSecurityException {
+        if (cipher == null) {
+            cipher = Cipher.getInstance(TRANSFORMATION);
+        }
+        // re-initializing with the same key object lets the provider keep its expanded key
+        cipher.init(mode, keyOf(secret), iv);
+        return cipher;
+    }
+
+    private static int putLong(byte[] dst, int pos, long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            dst[pos++] = (byte) (value >>> shift);
+        }
+        return pos;
+    }
+
+    private static int putShort(byte[] dst, int pos, int value) {
+        dst[pos++] = (byte) (value >>> 8);
+        dst[pos++] = (byte) value;
+        return pos;
+    }
+
+    private static SecretKeySpec keyOf(String secret) {
+        SecretKeySpec key = keyCache.get(secret);
+        if (key != null) {
+            return key;
+        }
+        byte[] secretKey = secret == null ? null : secret.getBytes();
+        if (secretKey == null || secretKey.length != SECRET_LENGTH) {
+            throw new IllegalArgumentException("secret key's length must be 32 bytes");
+        }
+        if (keyCache.size() >= MAX_CACHED_KEYS) {
+            keyCache.clear();
+        }
+        key = new SecretKeySpec(secretKey, "AES");
+        SecretKeySpec existing = keyCache.putIfAbsent(secret, key);
+        return existing != null ? existing : key;
+    }
+}
@@ -0,0 +1,125 @@
+package im.zego.callsdk.auth;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * The payload strategy of a token version.
+ * <p>
+ * Description: A format only knows its version flag, whether it is scoped to a room and how its payload looks. The
+ * checks, the encryption and the packing are shared by every format in {@link ZegoTokenEngine}.
+ */
+abstract class TokenFormat {
+
+    /**
+     * The RTC token, scoped to a room and carrying the stream privileges.
+     */
+    static final TokenFormat RTC_03 = new TokenFormat("03", true) {
+        @Override
+        void writePayload(TokenWriter writer, long appId, String roomId, String userId,
+            ZegoTokenEngine.Privileges privilege, long nowTime, long expireTime) {
+            writer.field(TokenWriter.APP_ID, appId)
+                .field(TokenWriter.ROOM_ID, roomId)
+                .field(TokenWriter.USER_ID, userId)
+                .beginObject(TokenWriter.PRIVILEGE)
+                .field(TokenWriter.PRIVILEGE_LOGIN_ROOM, privilege.canLoginRoom ? 1 : 0)
+                .field(TokenWriter.PRIVILEGE_PUBLISH_STREAM, privilege.canPublishStream ? 1 : 0)
+                .endObject()
+                .field(TokenWriter.CREATE_TIME, nowTime)
+                .field(TokenWriter.EXPIRE_TIME, expireTime)
+                .field(TokenWriter.NONCE, TokenCipher.nextLongNonce());
+        }
+
+        @Override
+        void readPayload(JsonObject json, ZegoTokenDecoder.DecodedToken token) {
+            token.appId = require(json, "app_id").getAsLong();
+            token.roomId = require(json, "room_id").getAsString();
+            token.userId = require(json, "user_id").getAsString();
+            JsonObject privilegeJson = require(json, "privilege").getAsJsonObject();
+            token.privilege = new ZegoTokenEngine.Privileges();
+            token.privilege.canLoginRoom = isGranted(privilegeJson, "1");
+            token.privilege.canPublishStream = isGranted(privilegeJson, "2");
+            token.createTime = require(json, "create_time").getAsLong();
+            token.payloadExpireTime = require(json, "expire_time").getAsLong();
+            token.nonce = require(json, "nonce").getAsLong();
+        }
+    };
+
+    /**
+     * The user level token of ZIM, also accepted by Express.
+     */
+    static final TokenFormat ZIM_04 = new TokenFormat("04", false) {
+        @Override
+        void writePayload(TokenWriter writer, long appId, String roomId, String userId,
+            ZegoTokenEngine.Privileges privilege, long nowTime, long expireTime) {
+            writer.field(TokenWriter.APP_ID, appId)
+                .field(TokenWriter.USER_ID, userId)
+                .field(TokenWriter.CTIME, nowTime)
+                .field(TokenWriter.EXPIRE, expireTime)
+                .field(TokenWriter.NONCE, TokenCipher.nextIntNonce())
+                .field(TokenWriter.PAYLOAD, "");
+        }
+
+        @Override
+        void readPayload(JsonObject json, ZegoTokenDecoder.DecodedToken token) {
+            token.appId = require(json, "app_id").getAsLong();
+            token.userId = require(json, "user_id").getAsString();
+            token.createTime = require(json, "ctime").getAsLong();
+            token.payloadExpireTime = require(json, "expire").getAsLong();
+            token.nonce = require(json, "nonce").getAsLong();
+        }
+    };
+
+    final String versionFlag;
+    final boolean roomScoped;
+
+    private TokenFormat(String versionFlag, boolean roomScoped) {
+        this.versionFlag = versionFlag;
+        this.roomScoped = roomScoped;
+    }
+
+    /**
+     * Find the format of a token by its leading version flag.
+     *
+     * @return the format, null if the version is unknown.
+     */
+    static TokenFormat of(String token) {
+        if (token.startsWith(RTC_03.versionFlag)) {
+            return RTC_03;
+        } else if (token.startsWith(ZIM_04.versionFlag)) {
+            return ZIM_04;
+        }
+        return null;
+    }
+
+    /**
+     * Write the payload fields into the opened root object.
+     *
+     * @param roomId    the room ID, null if the format is not {@link #roomScoped}.
+     * @param privilege the privileges, null if the format is not {@link #roomScoped}.
+     */
+    abstract void writePayload(TokenWriter writer, long appId, String roomId, String userId,
+        ZegoTokenEngine.Privileges privilege, long nowTime, long expireTime);
+
+    /**
+     * Read the payload fields of a decrypted token, parsed with the shared Gson.
+     *
+     * @throws RuntimeException if a field is missing or has the wrong type.
+     */
+    abstract void readPayload(JsonObject json, ZegoTokenDecoder.DecodedToken token);
+
+    private static JsonElement require(JsonObject json, String name) {
+        JsonElement element = json.get(name);
+        if (element == null || element.isJsonNull()) {
+            throw new IllegalArgumentException("missing field " + name);
+        }
+        return element;
+    }
+
+    // a privilege left out of the token is not granted
+    private static boolean isGranted(JsonObject privilegeJson, String key) {
+        JsonElement element = privilegeJson.get(key);
+        return element != null && element.isJsonPrimitive() && element.getAsJsonPrimitive().isNumber()
+            && element.getAsInt() == 1;
+    }
+}
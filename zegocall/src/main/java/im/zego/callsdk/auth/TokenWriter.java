@@ -0,0 +1,192 @@
+package im.zego.callsdk.auth;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writer of the token payload json.
+ * <p>
+ * Description: The payload has a fixed schema, so its keys are encoded once and the values are written straight into
+ * a byte array that every thread reuses. Nothing is allocated per token unless a payload outgrows the buffer.
+ */
+final class TokenWriter {
+
+    static final byte[] APP_ID = key("app_id");
+    static final byte[] USER_ID = key("user_id");
+    static final byte[] ROOM_ID = key("room_id");
+    static final byte[] PRIVILEGE = key("privilege");
+    static final byte[] PRIVILEGE_LOGIN_ROOM = key("1");
+    static final byte[] PRIVILEGE_PUBLISH_STREAM = key("2");
+    static final byte[] CTIME = key("ctime");
+    static final byte[] EXPIRE = key("expire");
+    static final byte[] CREATE_TIME = key("create_time");
+    static final byte[] EXPIRE_TIME = key("expire_time");
+    static final byte[] NONCE = key("nonce");
+    static final byte[] PAYLOAD = key("payload");
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private static final ThreadLocal<TokenWriter> threadWriter = new ThreadLocal<TokenWriter>() {
+        @Override
+        protected TokenWriter initialValue() {
+            return new TokenWriter();
+        }
+    };
+
+    private byte[] buffer = new byte[256];
+    private int size;
+    private boolean needComma;
+
+    private TokenWriter() {
+    }
+
+    /**
+     * Get the writer bound to the calling thread, reset and with the root object opened.
+     */
+    static TokenWriter begin() {
+        TokenWriter writer = threadWriter.get();
+        writer.size = 0;
+        writer.needComma = false;
+        writer.put((byte) '{');
+        return writer;
+    }
+
+    TokenWriter field(byte[] key, long value) {
+        name(key);
+        putLong(value);
+        return this;
+    }
+
+    TokenWriter field(byte[] key, String value) {
+        name(key);
+        putString(value);
+        return this;
+    }
+
+    TokenWriter beginObject(byte[] key) {
+        name(key);
+        put((byte) '{');
+        needComma = false;
+        return this;
+    }
+
+    TokenWriter endObject() {
+        put((byte) '}');
+        needComma = true;
+        return this;
+    }
+
+    /**
+     * Close the root object.
+     *
+     * @return the writer itself, whose {@link #buffer()} holds {@link #size()} bytes of utf-8 json.
+     */
+    TokenWriter end() {
+        put((byte) '}');
+        return this;
+    }
+
+    byte[] buffer() {
+        return buffer;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void name(byte[] key) {
+        if (needComma) {
+            put((byte) ',');
+        }
+        ensure(key.length);
+        System.arraycopy(key, 0, buffer, size, key.length);
+        size += key.length;
+        needComma = true;
+    }
+
+    private void putLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            byte[] min = Long.toString(value).getBytes(StandardCharsets.US_ASCII);
+            ensure(min.length);
+            System.arraycopy(min, 0, buffer, size, min.length);
+            size += min.length;
+            return;
+        }
+        ensure(20);
+        if (value < 0) {
+            buffer[size++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest != 0; rest /= 10) {
+            digits++;
+        }
+        int pos = size + digits;
+        do {
+            buffer[--pos] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        size += digits;
+    }
+
+    private void putString(String value) {
+        int length = value.length();
+        // worst case is a \\uXXXX escape for every char, plus the quotes
+        ensure(length * 6 + 2);
+        byte[] buf = buffer;
+        int pos = size;
+        buf[pos++] = '"';
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (c == '"' || c == '\\') {
+                    buf[pos++] = '\\';
+                    buf[pos++] = (byte) c;
+                } else if (c < 0x20) {
+                    buf[pos++] = '\\';
+                    buf[pos++] = 'u';
+                    buf[pos++] = '0';
+                    buf[pos++] = '0';
+                    buf[pos++] = HEX[c >> 4];
+                    buf[pos++] = HEX[c & 0xf];
+                } else {
+                    buf[pos++] = (byte) c;
+                }
+            } else if (c < 0x800) {
+                buf[pos++] = (byte) (0xc0 | (c >> 6));
+                buf[pos++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buf[pos++] = (byte) (0xf0 | (codePoint >> 18));
+                buf[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                buf[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                buf[pos++] = (byte) (0x80 | (codePoint & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                // unpaired surrogate, same replacement as String.getBytes(UTF_8)
+                buf[pos++] = '?';
+            } else {
+                buf[pos++] = (byte) (0xe0 | (c >> 12));
+                buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                buf[pos++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        buf[pos++] = '"';
+        size = pos;
+    }
+
+    private void put(byte b) {
+        ensure(1);
+        buffer[size++] = b;
+    }
+
+    private void ensure(int count) {
+        if (size + count > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + count));
+        }
+    }
+
+    private static byte[] key(String name) {
+        return ("\"" + name + "\":").getBytes(StandardCharsets.US_ASCII);
+    }
+}
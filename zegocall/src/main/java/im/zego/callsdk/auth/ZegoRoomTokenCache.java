@@ -0,0 +1,181 @@
+package im.zego.callsdk.auth;
+
+import im.zego.callsdk.auth.ZegoTokenEngine.ErrorCode;
+import im.zego.callsdk.auth.ZegoTokenEngine.Privileges;
+import im.zego.callsdk.auth.ZegoTokenEngine.TokenInfo;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Class room token cache.
+ * <p>
+ * Description: This class keeps the 03 tokens it mints, keyed by user, room and privileges, so repeated calls between
+ * the same users reuse the token instead of minting it again. The cache holds at most {@code maxSize} tokens and
+ * evicts the least recently used one beyond that. A token is dropped once it is within {@code marginInSeconds} of its
+ * expire time, which is read back from the token itself.
+ */
+public final class ZegoRoomTokenCache {
+
+    private final long appId;
+    private final String secret;
+    private final int effectiveTimeInSeconds;
+    private final long marginInSeconds;
+    private final LinkedHashMap<Key, Entry> entries;
+
+    private long hitCount;
+    private long missCount;
+
+    /**
+     * @param appId                  refers to the project ID.
+     * @param secret                 refers to the 32 characters server secret.
+     * @param effectiveTimeInSeconds refers to the validity of the minted tokens.
+     * @param marginInSeconds        a token is no longer returned this many seconds before it expires.
+     * @param maxSize                refers to the maximum number of tokens kept.
+     */
+    public ZegoRoomTokenCache(long appId, String secret, int effectiveTimeInSeconds, long marginInSeconds,
+        final int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize <= 0");
+        }
+        this.appId = appId;
+        this.secret = secret;
+        this.effectiveTimeInSeconds = effectiveTimeInSeconds;
+        this.marginInSeconds = marginInSeconds;
+        this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Get the 03 token of a user in a room, minting it if it is not cached or about to expire.
+     *
+     * @return the token, check {@link TokenInfo#error} before using its data.
+     */
+    public TokenInfo getToken(String roomId, String userId, Privileges privilege) {
+        if (privilege == null) {
+            return ZegoTokenEngine.generateRTCToken(appId, roomId, userId, null, secret, effectiveTimeInSeconds);
+        }
+        Key key = new Key(userId, roomId, privilege.canLoginRoom, privilege.canPublishStream);
+        long nowTime = System.currentTimeMillis() / 1000;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expireTime - marginInSeconds > nowTime) {
+                hitCount++;
+                TokenInfo token = new TokenInfo();
+                token.data = entry.token;
+                return token;
+            }
+            if (entry != null) {
+                entries.remove(key);
+            }
+            missCount++;
+        }
+
+        // mint outside the lock, two threads missing the same key at once only mint it twice
+        TokenInfo token = ZegoTokenEngine.generateRTCToken(appId, roomId, userId, privilege, secret,
+            effectiveTimeInSeconds);
+        if (token.error.code == ErrorCode.SUCCESS) {
+            long expireTime = ZegoTokenDecoder.peekExpireTime(token.data);
+            synchronized (this) {
+                entries.put(key, new Entry(token.data, expireTime));
+            }
+        }
+        return token;
+    }
+
+    /**
+     * Drop the tokens that are within the margin of their expire time.
+     */
+    public synchronized void evictExpired() {
+        long nowTime = System.currentTimeMillis() / 1000;
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().expireTime - marginInSeconds <= nowTime) {
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return how many times {@link #getToken} returned a cached token.
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return how many times {@link #getToken} had to mint a token.
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ZegoRoomTokenCache {\"size\": " + entries.size() + ", \"hitCount\": " + hitCount + ", \"missCount\": "
+            + missCount + "}";
+    }
+
+    private static final class Key {
+
+        final String userId;
+        final String roomId;
+        final boolean canLoginRoom;
+        final boolean canPublishStream;
+
+        Key(String userId, String roomId, boolean canLoginRoom, boolean canPublishStream) {
+            this.userId = userId;
+            this.roomId = roomId;
+            this.canLoginRoom = canLoginRoom;
+            this.canPublishStream = canPublishStream;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return canLoginRoom == key.canLoginRoom && canPublishStream == key.canPublishStream
+                && equals(userId, key.userId) && equals(roomId, key.roomId);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = userId == null ? 0 : userId.hashCode();
+            result = 31 * result + (roomId == null ? 0 : roomId.hashCode());
+            result = 31 * result + (canLoginRoom ? 1 : 0);
+            return 31 * result + (canPublishStream ? 1 : 0);
+        }
+
+        private static boolean equals(String a, String b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
+
+    private static final class Entry {
+
+        final String token;
+        final long expireTime;
+
+        Entry(String token, long expireTime) {
+            this.token = token;
+            this.expireTime = expireTime;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package im.zego.callsdk.auth;
+
+import com.google.gson.JsonObject;
+import im.zego.callsdk.auth.ZegoTokenEngine.ErrorCode;
+import im.zego.callsdk.auth.ZegoTokenEngine.ErrorInfo;
+import im.zego.callsdk.auth.ZegoTokenEngine.Privileges;
+import im.zego.callsdk.utils.ZegoCodecRegistry;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Class token introspection.
+ * <p>
+ * Description: A token starts with its 2 characters version flag followed by the base64 of the packed bytes, whose
+ * first 8 bytes are the big-endian expire time. The peek methods read the version and the expire time from the first
+ * 14 characters without decoding the rest or decrypting anything, so anyone holding a token can check its freshness.
+ * {@link #verify} decrypts and checks the whole token and needs the server secret.
+ */
+public final class ZegoTokenDecoder {
+
+    // version flag (2) + the base64 unit (12) holding the 8 bytes expire time
+    private static final int HEADER_LENGTH = 14;
+    private static final int VERSION_LENGTH = 2;
+
+    /**
+     * The content of a verified token.
+     */
+    static public class DecodedToken {
+        public String version = "";
+
+        public long appId;
+
+        public String userId = "";
+
+        /**
+         * The room ID of a 03 token, empty for a 04 token.
+         */
+        public String roomId = "";
+
+        /**
+         * The privileges of a 03 token, null for a 04 token.
+         */
+        public Privileges privilege;
+
+        public long createTime;
+
+        /**
+         * The expire time in seconds, as read from the unencrypted header.
+         */
+        public long expireTime;
+
+        public long nonce;
+
+        public ErrorInfo error;
+
+        long payloadExpireTime;
+
+        DecodedToken() {
+            this.error = new ErrorInfo();
+        }
+
+        @Override
+        public String toString() {
+            return "DecodedToken {\"error\": " + error + ", \"version\": \"" + version + "\", \"appId\": " + appId
+                + ", \"userId\": \"" + userId + "\", \"roomId\": \"" + roomId + "\", \"expireTime\": " + expireTime
+                + "}";
+        }
+    }
+
+    private ZegoTokenDecoder() {
+    }
+
+    /**
+     * Read the version flag of a token without decoding it.
+     *
+     * @return "03" or "04", null if the token is not a known version.
+     */
+    static public String peekVersion(String token) {
+        if (token == null || token.length() < HEADER_LENGTH) {
+            return null;
+        }
+        TokenFormat format = TokenFormat.of(token);
+        return format == null ? null : format.versionFlag;
+    }
+
+    /**
+     * Read the expire time of a token without decrypting it.
+     *
+     * @return the expire time in seconds, -1 if the token is malformed.
+     */
+    static public long peekExpireTime(String token) {
+        if (peekVersion(token) == null) {
+            return -1;
+        }
+        // 3 units of 24 bits: bytes 0-2, 3-5 and 6-8, the expire time is bytes 0-7
+        long unit0 = Base64.Decoder.decodeUnit(token, VERSION_LENGTH);
+        long unit1 = Base64.Decoder.decodeUnit(token, VERSION_LENGTH + 4);
+        long unit2 = Base64.Decoder.decodeUnit(token, VERSION_LENGTH + 8);
+        if (unit0 < 0 || unit1 < 0 || unit2 < 0) {
+            return -1;
+        }
+        return unit0 << 40 | unit1 << 16 | unit2 >>> 8;
+    }
+
+    /**
+     * Check whether a token is expired, or is about to.
+     *
+     * @param token         the token to check.
+     * @param marginSeconds the token is seen as expired this many seconds before its expire time.
+     * @return true if the token is expired or malformed.
+     */
+    static public boolean isExpired(String token, long marginSeconds) {
+        long expireTime = peekExpireTime(token);
+        return expireTime < 0 || expireTime - marginSeconds <= System.currentTimeMillis() / 1000;
+    }
+
+    /**
+     * Decrypt a token and verify its content.
+     * <p>
+     * Description: The token is valid when it decrypts with the secret, its payload matches its header and it is not
+     * expired. An expired token still has its content filled, with the {@link ErrorCode#TOKEN_EXPIRED} error.
+     *
+     * @param token  the token to verify.
+     * @param secret the 32 characters server secret the token was minted with.
+     * @return the token content, check {@link DecodedToken#error} before using it.
+     */
+    static public DecodedToken verify(String token, String secret) {
+        DecodedToken decoded = new DecodedToken();
+        TokenFormat format = token == null || token.length() < HEADER_LENGTH ? null : TokenFormat.of(token);
+        if (format == null) {
+            return fail(decoded, ErrorCode.ILLEGAL_TOKEN, "unknown token version");
+        }
+        if (secret == null || secret.length() != TokenCipher.SECRET_LENGTH) {
+            return fail(decoded, ErrorCode.ILLEGAL_SECRET, "illegal secret");
+        }
+        decoded.version = format.versionFlag;
+
+        try {
+            byte[] packed = Base64Backend.selected().decode(token, VERSION_LENGTH);
+            // expire time (8) + IV length (2) + IV + payload length (2)
+            int ivOffset = 10;
+            int contentOffset = ivOffset + TokenCipher.IV_LENGTH + 2;
+            if (packed.length < contentOffset || readShort(packed, 8) != TokenCipher.IV_LENGTH) {
+                return fail(decoded, ErrorCode.ILLEGAL_TOKEN, "illegal token layout");
+            }
+            int contentLength = readShort(packed, contentOffset - 2);
+            if (contentOffset + contentLength != packed.length) {
+                return fail(decoded, ErrorCode.ILLEGAL_TOKEN, "illegal token layout");
+            }
+            decoded.expireTime = readLong(packed);
+
+            byte[] content = TokenCipher.current().open(packed, ivOffset, contentOffset, contentLength, secret);
+            JsonObject payload = ZegoCodecRegistry.gson()
+                .fromJson(new String(content, StandardCharsets.UTF_8), JsonObject.class);
+            if (payload == null) {
+                return fail(decoded, ErrorCode.ILLEGAL_TOKEN, "empty payload");
+            }
+            format.readPayload(payload, decoded);
+        } catch (Exception e) {
+            return fail(decoded, ErrorCode.ILLEGAL_TOKEN, "" + e);
+        }
+
+        if (decoded.payloadExpireTime != decoded.expireTime) {
+            return fail(decoded, ErrorCode.ILLEGAL_TOKEN, "expire time mismatch");
+        }
+        if (decoded.expireTime <= System.currentTimeMillis() / 1000) {
+            return fail(decoded, ErrorCode.TOKEN_EXPIRED, "token expired");
+        }
+        return decoded;
+    }
+
+    private static DecodedToken fail(DecodedToken decoded, ErrorCode code, String message) {
+        decoded.error.code = code;
+        decoded.error.message = message;
+        return decoded;
+    }
+
+    private static int readShort(byte[] src, int pos) {
+        return (src[pos] & 0xff) << 8 | (src[pos + 1] & 0xff);
+    }
+
+    private static long readLong(byte[] src) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = value << 8 | (src[i] & 0xff);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,289 @@
+package im.zego.callsdk.auth;
+
+import java.util.List;
+
+/**
+ * Class token minting.
+ * <p>
+ * Description: This class mints both the 03 (RTC) and the 04 (ZIM) tokens. The formats only differ in their payload,
+ * so they share the same checks and the same encrypt-and-pack path, and {@link #generateTokens} mints the tokens a
+ * call needs with the shared work done once.
+ */
+public final class ZegoTokenEngine {
+
+    static public boolean VERBOSE = false;
+
+    static public class Privileges {
+        public boolean canLoginRoom;
+
+        public boolean canPublishStream;
+
+        public Privileges() {
+            canLoginRoom = false;
+            canPublishStream = false;
+        }
+    }
+
+    public enum ErrorCode {
+        SUCCESS(0),
+        ILLEGAL_APP_ID(1),
+        ILLEGAL_ROOM_ID(2),
+        ILLEGAL_USER_ID(3),
+        ILLEGAL_PRIVILEGE(4),
+        ILLEGAL_SECRET(5),
+        ILLEGAL_EFFECTIVE_TIME(6),
+        ILLEGAL_TOKEN(7),
+        TOKEN_EXPIRED(8),
+        OTHER(-1);
+
+        ErrorCode(int code) {
+            this.value = code;
+        }
+
+        public int value;
+    }
+
+    static public class ErrorInfo {
+        public ErrorCode code;
+        public String message;
+
+        ErrorInfo() {
+            code = ErrorCode.SUCCESS;
+            message = "";
+        }
+
+        @Override
+        public String toString() {
+            return "{\"code\": " + code.value + ", \"message\": \"" + message + "\"}";
+        }
+    }
+
+    static public class TokenInfo {
+        public String data = "";
+
+        public ErrorInfo error;
+
+        TokenInfo() {
+            this.error = new ErrorInfo();
+        }
+
+        @Override
+        public String toString() {
+            return "TokenInfo {\"error\": " + error + ", \"data\": \"" + data + "\"}";
+        }
+    }
+
+    /**
+     * The tokens a call needs: the ZIM token to log in and the RTC token of the call room.
+     */
+    static public class TokenPair {
+        public TokenInfo zimToken;
+
+        public TokenInfo rtcToken;
+
+        TokenPair() {
+            this.zimToken = new TokenInfo();
+            this.rtcToken = new TokenInfo();
+        }
+
+        @Override
+        public String toString() {
+            return "TokenPair {\"zimToken\": " + zimToken + ", \"rtcToken\": " + rtcToken + "}";
+        }
+    }
+
+    /**
+     * One item of a batch of RTC tokens.
+     */
+    static public class RoomTokenRequest {
+        public String roomId;
+
+        public String userId;
+
+        public Privileges privilege;
+
+        public RoomTokenRequest(String roomId, String userId, Privileges privilege) {
+            this.roomId = roomId;
+            this.userId = userId;
+            this.privilege = privilege;
+        }
+    }
+
+    private ZegoTokenEngine() {
+    }
+
+    /**
+     * Generate a 04 token, used to log in to ZIM.
+     *
+     * @param appId                  refers to the project ID.
+     * @param userId                 refers to the user ID, no more than 64 characters.
+     * @param secret                 refers to the 32 characters server secret.
+     * @param effectiveTimeInSeconds refers to the validity of the token.
+     * @return the token, check {@link TokenInfo#error} before using its data.
+     */
+    static public TokenInfo generateZIMToken(long appId, String userId, String secret, int effectiveTimeInSeconds) {
+        return generateToken(TokenFormat.ZIM_04, appId, null, userId, null, secret, effectiveTimeInSeconds);
+    }
+
+    /**
+     * Generate a 03 token, used to log in to an RTC room.
+     *
+     * @param appId                  refers to the project ID.
+     * @param roomId                 refers to the room ID, no more than 64 characters.
+     * @param userId                 refers to the user ID, no more than 64 characters.
+     * @param privilege              refers to the privileges granted in the room.
+     * @param secret                 refers to the 32 characters server secret.
+     * @param effectiveTimeInSeconds refers to the validity of the token.
+     * @return the token, check {@link TokenInfo#error} before using its data.
+     */
+    static public TokenInfo generateRTCToken(long appId, String roomId, String userId, Privileges privilege,
+        String secret, int effectiveTimeInSeconds) {
+        return generateToken(TokenFormat.RTC_03, appId, roomId, userId, privilege, secret, effectiveTimeInSeconds);
+    }
+
+    /**
+     * Generate the 04 and the 03 token of a user in one pass.
+     * <p>
+     * Description: The common checks, the clock read and the cipher setup happen once for both tokens. The ZIM token
+     * is still minted when only the room ID or the privileges are illegal.
+     *
+     * @return both tokens, each with its own error.
+     */
+    static public TokenPair generateTokens(long appId, String roomId, String userId, Privileges privilege,
+        String secret, int effectiveTimeInSeconds) {
+        TokenPair pair = new TokenPair();
+        if (!checkUser(appId, userId, secret, effectiveTimeInSeconds, pair.zimToken.error)) {
+            pair.rtcToken.error.code = pair.zimToken.error.code;
+            pair.rtcToken.error.message = pair.zimToken.error.message;
+            return pair;
+        }
+        long nowTime = System.currentTimeMillis() / 1000;
+        seal(TokenFormat.ZIM_04, appId, null, userId, null, secret, nowTime, effectiveTimeInSeconds,
+            pair.zimToken);
+        if (checkRoom(roomId, privilege, pair.rtcToken.error)) {
+            seal(TokenFormat.RTC_03, appId, roomId, userId, privilege, secret, nowTime, effectiveTimeInSeconds,
+                pair.rtcToken);
+        }
+        return pair;
+    }
+
+    /**
+     * Generate the 04 tokens of many users at once.
+     * <p>
+     * Description: Large batches are minted in parallel on a shared pool sized to the cores, the calling thread takes
+     * part in the work and blocks until the whole batch is done.
+     *
+     * @param userIds refers to the users to mint a token for.
+     * @return the tokens in the order of userIds, each with its own error.
+     */
+    static public List<TokenInfo> generateZIMTokens(long appId, List<String> userIds, String secret,
+        int effectiveTimeInSeconds) {
+        return TokenBatch.mint(userIds,
+            userId -> generateZIMToken(appId, userId, secret, effectiveTimeInSeconds));
+    }
+
+    /**
+     * Generate the 03 tokens of many (room, user, privileges) requests at once.
+     * <p>
+     * Description: Large batches are minted in parallel on a shared pool sized to the cores, the calling thread takes
+     * part in the work and blocks until the whole batch is done.
+     *
+     * @param requests refers to the rooms and users to mint a token for.
+     * @return the tokens in the order of requests, each with its own error.
+     */
+    static public List<TokenInfo> generateRTCTokens(long appId, List<RoomTokenRequest> requests, String secret,
+        int effectiveTimeInSeconds) {
+        return TokenBatch.mint(requests, request -> generateRTCToken(appId, request.roomId, request.userId,
+            request.privilege, secret, effectiveTimeInSeconds));
+    }
+
+    static TokenInfo generateToken(TokenFormat format, long appId, String roomId, String userId,
+        Privileges privilege, String secret, int effectiveTimeInSeconds) {
+        TokenInfo token = new TokenInfo();
+        if (!checkUser(appId, userId, secret, effectiveTimeInSeconds, token.error)) {
+            return token;
+        }
+        if (format.roomScoped && !checkRoom(roomId, privilege, token.error)) {
+            return token;
+        }
+        long nowTime = System.currentTimeMillis() / 1000;
+        seal(format, appId, roomId, userId, privilege, secret, nowTime, effectiveTimeInSeconds, token);
+        return token;
+    }
+
+    private static void seal(TokenFormat format, long appId, String roomId, String userId, Privileges privilege,
+        String secret, long nowTime, int effectiveTimeInSeconds, TokenInfo token) {
+        long expireTime = nowTime + effectiveTimeInSeconds;
+        TokenWriter payload = TokenWriter.begin();
+        format.writePayload(payload, appId, roomId, userId, privilege, nowTime, expireTime);
+        payload.end();
+
+        try {
+            debugInfo("encrypt content ...");
+            TokenCipher cipher = TokenCipher.current();
+            int packedLength = cipher.seal(payload, secret, expireTime);
+
+            debugInfo("serialize with base64 ...");
+            token.data = cipher.encode(format.versionFlag, packedLength);
+
+            token.error.code = ErrorCode.SUCCESS;
+        } catch (Exception e) {
+            debugInfo("generate token failed: " + e);
+            token.error.code = ErrorCode.OTHER;
+            token.error.message = "" + e;
+        }
+    }
+
+    private static boolean checkUser(long appId, String userId, String secret, int effectiveTimeInSeconds,
+        ErrorInfo error) {
+        // check the appId
+        if (appId == 0) {
+            return fail(error, ErrorCode.ILLEGAL_APP_ID, "illegal appId", "illegal appId");
+        }
+
+        // check the userId
+        if (userId == null || userId.isEmpty() || userId.length() > 64) {
+            return fail(error, ErrorCode.ILLEGAL_USER_ID, "illegal userId",
+                "userId can't empty and must no more than 64 characters");
+        }
+
+        // check the secret
+        if (secret == null || secret.length() != TokenCipher.SECRET_LENGTH) {
+            return fail(error, ErrorCode.ILLEGAL_SECRET, "illegal secret", "secret must 32 characters");
+        }
+
+        // check the effectiveTimeInSeconds
+        if (effectiveTimeInSeconds <= 0) {
+            return fail(error, ErrorCode.ILLEGAL_EFFECTIVE_TIME, "effectiveTimeInSeconds must > 0",
+                "effectiveTimeInSeconds must > 0");
+        }
+        return true;
+    }
+
+    private static boolean checkRoom(String roomId, Privileges privilege, ErrorInfo error) {
+        // check the roomId
+        if (roomId == null || roomId.isEmpty() || roomId.length() > 64) {
+            return fail(error, ErrorCode.ILLEGAL_ROOM_ID, "illegal roomId",
+                "roomId can't empty and must no more than 64 characters");
+        }
+
+        // check the privilege
+        if (privilege == null) {
+            return fail(error, ErrorCode.ILLEGAL_PRIVILEGE, "privilege can't be null", "privilege can't be null");
+        }
+        return true;
+    }
+
+    private static boolean fail(ErrorInfo error, ErrorCode code, String message, String debugMessage) {
+        error.code = code;
+        error.message = message;
+        debugInfo(debugMessage);
+        return false;
+    }
+
+    private static void debugInfo(String info) {
+        if (VERBOSE) {
+            System.out.println(info);
+        }
+    }
+}
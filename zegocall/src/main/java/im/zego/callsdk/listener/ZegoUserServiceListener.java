@@ -1,5 +1,6 @@
 package im.zego.callsdk.listener;
 
+import im.zego.callsdk.model.ZegoCallTimeoutType;
 import im.zego.callsdk.model.ZegoCallType;
 import im.zego.callsdk.model.ZegoCancelType;
 import im.zego.callsdk.model.ZegoNetWorkQuality;
@@ -76,4 +77,19 @@ public interface ZegoUserServiceListener {
      * @param roomID             Room ID where the user is logged in, a string of up to 128 bytes in length.
      */
     void onRoomTokenWillExpire(int remainTimeInSecond, String roomID);
+
+    /**
+     * Callback for a call timer that ran out
+     * <p>
+     * Description: This callback will be triggered when a callee did not answer the outbound call, when the inbound
+     * call was not answered, when the connection did not come back during the call, or when no stream of a user in
+     * the call played for a while. The SDK already canceled the call for a callee that did not answer, and a user
+     * whose heartbeat ran out may only have a bad network, the call goes on until it leaves the room. Does nothing by
+     * default, so the listeners written before the timers need no change.
+     *
+     * @param type   refers to the timer that ran out.
+     * @param userID refers to the callee, the caller or the silent user, null if the timer is for the whole call.
+     */
+    default void onCallTimeout(ZegoCallTimeoutType type, String userID) {
+    }
 }
\ No newline at end of file
@@ -13,6 +13,8 @@ public class ZegoCallMessage {
     public static final int CANCEL_CALL = 2;
     public static final int RESPONSE_CALL = 3;
     public static final int END_CALL = 4;
+    // the receipt of a message, its seq is the seq of the message received
+    public static final int ACK = 5;
 
     @SerializedName("action_type")
     public int actionType;
@@ -20,6 +22,16 @@ public class ZegoCallMessage {
     public List<String> target;
     @SerializedName("content")
     public ContentBean content;
+    /**
+     * The sequence number of the message among those of its sender, null if the sender does not number them.
+     */
+    @SerializedName("seq")
+    public Long seq;
+    /**
+     * The newest binary wire version the sender can read, null if it only reads JSON.
+     */
+    @SerializedName("wire_version")
+    public Integer wireVersion;
 
     public static class ContentBean {
 
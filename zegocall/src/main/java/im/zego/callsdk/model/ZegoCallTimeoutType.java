@@ -0,0 +1,25 @@
+package im.zego.callsdk.model;
+
+/**
+ * The timers the SDK keeps for a call, with how long each one waits by default, in milliseconds.
+ */
+public enum ZegoCallTimeoutType {
+    // the callee did not answer the outbound call
+    RING(60 * 1000),
+    // we did not answer the inbound call, a bit longer than the caller rings so its timeout cancel arrives first
+    ANSWER(62 * 1000),
+    // the connection did not come back during the call
+    RECONNECT(30 * 1000),
+    // a user in the call was not seen for a while: no stream of it played and it did not join the room again
+    HEARTBEAT(20 * 1000);
+
+    private final long defaultMillis;
+
+    public long getDefaultMillis() {
+        return defaultMillis;
+    }
+
+    ZegoCallTimeoutType(long defaultMillis) {
+        this.defaultMillis = defaultMillis;
+    }
+}
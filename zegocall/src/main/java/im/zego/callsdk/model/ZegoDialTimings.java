@@ -0,0 +1,28 @@
+package im.zego.callsdk.model;
+
+/**
+ * Class dial timings.
+ * <p>Description: This class contains the time each phase of an outbound call took, in milliseconds from the call to
+ * callUser. A phase that did not complete is -1.</>
+ */
+public class ZegoDialTimings {
+
+    // whether the invite was sent while the room was being created
+    public boolean fastDial;
+    // the invite was sent, the callee can ring from here
+    public long inviteSent = -1;
+    // the room was created
+    public long roomCreated = -1;
+    // the stream publishing started, the call is set up on our side
+    public long publishStarted = -1;
+
+    @Override
+    public String toString() {
+        return "ZegoDialTimings{" +
+            "fastDial=" + fastDial +
+            ", inviteSent=" + inviteSent +
+            ", roomCreated=" + roomCreated +
+            ", publishStarted=" + publishStarted +
+            '}';
+    }
+}
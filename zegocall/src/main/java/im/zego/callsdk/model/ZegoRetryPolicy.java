@@ -0,0 +1,52 @@
+package im.zego.callsdk.model;
+
+/**
+ * Class retry policy.
+ * <p>Description: This class describes how a signaling message is sent again until the peer acknowledges it: up to
+ * maxAttempts sends in all, the second one initialDelayMillis after the first and each next one twice as long after the
+ * previous one, at most maxDelayMillis.</>
+ */
+public class ZegoRetryPolicy {
+
+    // sent once, never again
+    public static final ZegoRetryPolicy NONE = new ZegoRetryPolicy(1, 0, 0);
+
+    // the number of sends, the first one included
+    public final int maxAttempts;
+    // the wait before the second send
+    public final long initialDelayMillis;
+    // the longest wait between two sends
+    public final long maxDelayMillis;
+
+    public ZegoRetryPolicy(int maxAttempts, long initialDelayMillis, long maxDelayMillis) {
+        if (maxAttempts < 1 || initialDelayMillis < 0 || maxDelayMillis < initialDelayMillis) {
+            throw new IllegalArgumentException(
+                "maxAttempts = " + maxAttempts + ", initialDelayMillis = " + initialDelayMillis + ", maxDelayMillis = "
+                    + maxDelayMillis);
+        }
+        this.maxAttempts = maxAttempts;
+        this.initialDelayMillis = initialDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    /**
+     * @param attempt the send to wait for, 2 for the first one made again.
+     * @return the wait between the previous send and this one.
+     */
+    public long getDelayMillis(int attempt) {
+        long delay = initialDelayMillis;
+        for (int i = 2; i < attempt && delay < maxDelayMillis; i++) {
+            delay *= 2;
+        }
+        return Math.min(delay, maxDelayMillis);
+    }
+
+    @Override
+    public String toString() {
+        return "ZegoRetryPolicy{" +
+            "maxAttempts=" + maxAttempts +
+            ", initialDelayMillis=" + initialDelayMillis +
+            ", maxDelayMillis=" + maxDelayMillis +
+            '}';
+    }
+}
@@ -0,0 +1,59 @@
+package im.zego.callsdk.model;
+
+/**
+ * Class signaling stats.
+ * <p>Description: This class contains the counters of the signaling messages of one action type, and the time the
+ * peers took to acknowledge them, in milliseconds from the first send to the ack. A latency not measured yet is
+ * -1.</>
+ */
+public class ZegoSignalingStats {
+
+    // the messages sent, not counting the sends made again
+    public long sent;
+    // the messages the peer acknowledged
+    public long acked;
+    // the sends made again because no ack came in time
+    public long retries;
+    // the messages given up on, no ack came after the last send
+    public long failed;
+    // the messages received again and dropped
+    public long duplicates;
+    public long lastLatency = -1;
+    public long maxLatency = -1;
+    public long totalLatency;
+
+    public ZegoSignalingStats() {
+    }
+
+    public ZegoSignalingStats(ZegoSignalingStats stats) {
+        this.sent = stats.sent;
+        this.acked = stats.acked;
+        this.retries = stats.retries;
+        this.failed = stats.failed;
+        this.duplicates = stats.duplicates;
+        this.lastLatency = stats.lastLatency;
+        this.maxLatency = stats.maxLatency;
+        this.totalLatency = stats.totalLatency;
+    }
+
+    /**
+     * @return the average time to the ack, -1 if no message was acknowledged.
+     */
+    public long getAverageLatency() {
+        return acked == 0 ? -1 : totalLatency / acked;
+    }
+
+    @Override
+    public String toString() {
+        return "ZegoSignalingStats{" +
+            "sent=" + sent +
+            ", acked=" + acked +
+            ", retries=" + retries +
+            ", failed=" + failed +
+            ", duplicates=" + duplicates +
+            ", lastLatency=" + lastLatency +
+            ", maxLatency=" + maxLatency +
+            ", averageLatency=" + getAverageLatency() +
+            '}';
+    }
+}
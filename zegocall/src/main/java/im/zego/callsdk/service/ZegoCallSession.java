@@ -0,0 +1,190 @@
+package im.zego.callsdk.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import im.zego.callsdk.model.ZegoCallTimeoutType;
+import im.zego.callsdk.model.ZegoResponseType;
+import im.zego.callsdk.model.ZegoRoomInfo;
+import im.zego.callsdk.model.ZegoUserInfo;
+import im.zego.callsdk.utils.ZegoTimerWheel;
+
+/**
+ * Class call session
+ * <p>
+ * Description: This class holds the state of one call: its room, the users in the room, the streams played from them,
+ * the callees of an outbound call and the timers of the call. Each call has its own session, so a call can ring while
+ * another one goes on, and closing a session leaves the others as they are. The timers of a call, such as its ring
+ * timeout, are dropped with its session. The sessions are opened and closed by
+ * {@link ZegoUserService}, on the main thread like every callback of the SDK, so they need no locks.
+ */
+public class ZegoCallSession {
+
+    private final String roomID;
+    ZegoRoomInfo roomInfo = new ZegoRoomInfo();
+    // the users in the room
+    final List<ZegoUserInfo> userList = new ArrayList<>();
+    // the streams played in the room, by userID
+    final Map<String, String> streamMap = new HashMap<>();
+    // the callees of the outbound call and their responses, null while ringing
+    final Map<String, ZegoResponseType> callees = new LinkedHashMap<>();
+    // whether the local user publishes in the room
+    boolean publishing;
+    // whether the caller canceled while we retried to join the room
+    boolean joinCanceled;
+
+    private final ZegoTimerWheel timerWheel;
+    // the timeouts not run yet
+    private final Set<ZegoTimerWheel.Timeout> timers = new HashSet<>();
+    // the call timers among them, by type and userID
+    private final Map<String, ZegoTimerWheel.Timeout> callTimers = new HashMap<>();
+    private boolean closed;
+
+    ZegoCallSession(String roomID, ZegoTimerWheel timerWheel) {
+        this.roomID = roomID;
+        this.timerWheel = timerWheel;
+        roomInfo.roomID = roomID;
+    }
+
+    public String getRoomID() {
+        return roomID;
+    }
+
+    /**
+     * @return the room info, null once the room has ended.
+     */
+    public ZegoRoomInfo getRoomInfo() {
+        return roomInfo;
+    }
+
+    public List<ZegoUserInfo> getUserList() {
+        return Collections.unmodifiableList(userList);
+    }
+
+    /**
+     * @return the response of each callee that is still tracked, null for those still ringing.
+     */
+    public Map<String, ZegoResponseType> getCallees() {
+        return new LinkedHashMap<>(callees);
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    String getStreamID(String userID) {
+        return String.format("%s_%s_%s", roomID, userID, "main");
+    }
+
+    boolean hasActiveCallees() {
+        for (ZegoResponseType response : callees.values()) {
+            if (response == null || response == ZegoResponseType.Accept) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Run a runnable on the main thread after a delay, unless the session is closed first.
+     */
+    void postDelayed(Runnable runnable, long delayMillis) {
+        schedule(null, runnable, delayMillis);
+    }
+
+    /**
+     * Start a call timer, in place of the running timer of the same type and user.
+     *
+     * @param userID refers to the user the timer waits for, null if it is for the whole call.
+     */
+    void startTimer(ZegoCallTimeoutType type, String userID, long delayMillis, Runnable runnable) {
+        cancelTimer(type, userID);
+        // a timer of 0 is disabled
+        if (delayMillis > 0) {
+            schedule(timerKey(type, userID), runnable, delayMillis);
+        }
+    }
+
+    boolean hasTimer(ZegoCallTimeoutType type, String userID) {
+        return callTimers.containsKey(timerKey(type, userID));
+    }
+
+    void cancelTimer(ZegoCallTimeoutType type, String userID) {
+        ZegoTimerWheel.Timeout timeout = callTimers.remove(timerKey(type, userID));
+        if (timeout != null) {
+            timeout.cancel();
+            timers.remove(timeout);
+        }
+    }
+
+    private void schedule(String key, Runnable runnable, long delayMillis) {
+        if (closed) {
+            return;
+        }
+        Timer timer = new Timer(key, runnable);
+        timer.timeout = timerWheel.newTimeout(timer, delayMillis);
+        timers.add(timer.timeout);
+        if (key != null) {
+            callTimers.put(key, timer.timeout);
+        }
+    }
+
+    private static String timerKey(ZegoCallTimeoutType type, String userID) {
+        return userID == null ? type.name() : type.name() + ":" + userID;
+    }
+
+    /**
+     * Drop the timers and the state of the call. The room is left by the caller of this method.
+     */
+    void close() {
+        closed = true;
+        for (ZegoTimerWheel.Timeout timeout : timers) {
+            timeout.cancel();
+        }
+        timers.clear();
+        callTimers.clear();
+        userList.clear();
+        streamMap.clear();
+        callees.clear();
+    }
+
+    /**
+     * A runnable of the session, forgotten by the session when it runs.
+     */
+    private final class Timer implements Runnable {
+
+        private final String key;
+        private final Runnable runnable;
+        private ZegoTimerWheel.Timeout timeout;
+
+        Timer(String key, Runnable runnable) {
+            this.key = key;
+            this.runnable = runnable;
+        }
+
+        @Override
+        public void run() {
+            timers.remove(timeout);
+            if (key != null) {
+                callTimers.remove(key);
+            }
+            runnable.run();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ZegoCallSession{" +
+            "roomID='" + roomID + '\'' +
+            ", userList=" + userList +
+            ", callees=" + callees +
+            ", closed=" + closed +
+            '}';
+    }
+}
@@ -1,6 +1,8 @@
 package im.zego.callsdk.service;
 
 import android.app.Application;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
 import org.json.JSONObject;
@@ -9,13 +11,20 @@ import java.util.ArrayList;
 import java.util.HashMap;
 
 import im.zego.callsdk.ZegoZIMManager;
+import im.zego.callsdk.auth.Base64Backend;
 import im.zego.callsdk.callback.ZegoRoomCallback;
+import im.zego.callsdk.model.ZegoRoomInfo;
+import im.zego.callsdk.utils.ZegoCodecRegistry;
+import im.zego.callsdk.utils.ZegoEventDispatcher;
+import im.zego.callsdk.utils.ZegoEventDispatcher.Overflow;
+import im.zego.callsdk.utils.ZegoTimerWheel;
 import im.zego.zegoexpress.ZegoExpressEngine;
 import im.zego.zegoexpress.callback.IZegoEventHandler;
 import im.zego.zegoexpress.constants.ZegoScenario;
 import im.zego.zegoexpress.constants.ZegoStreamQualityLevel;
 import im.zego.zegoexpress.constants.ZegoUpdateType;
 import im.zego.zegoexpress.entity.ZegoEngineProfile;
+import im.zego.zegoexpress.entity.ZegoPlayStreamQuality;
 import im.zego.zegoexpress.entity.ZegoStream;
 import im.zego.zim.ZIM;
 import im.zego.zim.callback.ZIMEventHandler;
@@ -65,6 +74,25 @@ public class ZegoRoomManager {
     public ZegoUserService userService;
 
     private static final String TAG = "RoomManager";
+    // the keyed events of the SDK and of the listener that can wait for the main thread, and how many events run per
+    // main thread task
+    private static final int EVENT_CAPACITY = 512;
+    private static final int EVENT_BATCH_SIZE = 32;
+    // the timers of the SDK, 512 ticks of 50ms make a turn of the wheel
+    private static final long TIMER_TICK_MILLIS = 50;
+    private static final int TIMER_WHEEL_SIZE = 512;
+
+    private ZegoEventDispatcher dispatcher;
+    private ZegoTimerWheel timerWheel;
+
+    static ZegoEventDispatcher newEventDispatcher(Handler mainHandler) {
+        return new ZegoEventDispatcher(EVENT_CAPACITY, EVENT_BATCH_SIZE, Overflow.DROP_OLDEST, mainHandler::post);
+    }
+
+    static ZegoTimerWheel newTimerWheel(Handler mainHandler) {
+        // the timers run on the main thread too, outside the queue of the events
+        return new ZegoTimerWheel(TIMER_TICK_MILLIS, TIMER_WHEEL_SIZE, mainHandler::post);
+    }
 
     /**
      * Initialize the SDK.
@@ -75,7 +103,17 @@ public class ZegoRoomManager {
      * @param application th app context
      */
     public void init(long appID, Application application) {
-        userService = new ZegoUserService();
+        // build the Gson adapters off the main thread, before the first call needs them
+        ZegoCodecRegistry.warmUp();
+        // and time the Base64 decoders of the tokens, the vendored one is used until then
+        Base64Backend.calibrate();
+        // the events of the SDK reach the services in order on the main thread, whichever thread delivered them. Only
+        // the keyed states, such as the network quality of a user, can be dropped for newer ones, the signaling
+        // messages and the changes of the room are always delivered
+        Handler mainHandler = new Handler(Looper.getMainLooper());
+        dispatcher = newEventDispatcher(mainHandler);
+        timerWheel = newTimerWheel(mainHandler);
+        userService = new ZegoUserService(dispatcher, timerWheel);
 
         ZegoEngineProfile profile = new ZegoEngineProfile();
         profile.appID = appID;
@@ -86,9 +124,12 @@ public class ZegoRoomManager {
             public void onNetworkQuality(String userID, ZegoStreamQualityLevel upstreamQuality,
                 ZegoStreamQualityLevel downstreamQuality) {
                 super.onNetworkQuality(userID, upstreamQuality, downstreamQuality);
-                if (userService != null) {
-                    userService.onNetworkQuality(userID,upstreamQuality,downstreamQuality);
-                }
+                // only the latest quality of a user matters
+                dispatcher.post("quality:" + userID, () -> {
+                    if (userService != null) {
+                        userService.onNetworkQuality(userID, upstreamQuality, downstreamQuality);
+                    }
+                });
             }
 
             @Override
@@ -111,14 +152,32 @@ public class ZegoRoomManager {
                 for (ZegoStream zegoStream : streamList) {
                     Log.d(TAG, "onRoomStreamUpdate: " + zegoStream.streamID + ",updateType:" + updateType);
                 }
+                dispatcher.post(() -> {
+                    if (userService != null) {
+                        userService.onRoomStreamUpdate(roomID, updateType, streamList);
+                    }
+                });
+            }
+
+            @Override
+            public void onPlayerQualityUpdate(String streamID, ZegoPlayStreamQuality quality) {
+                super.onPlayerQualityUpdate(streamID, quality);
+                // only tells that the stream still plays, the latest report is enough
+                dispatcher.post("playerQuality:" + streamID, () -> {
+                    if (userService != null) {
+                        userService.onPlayerQualityUpdate(streamID);
+                    }
+                });
             }
 
             @Override
             public void onRoomTokenWillExpire(String roomID, int remainTimeInSecond) {
                 super.onRoomTokenWillExpire(roomID, remainTimeInSecond);
-                if (userService != null) {
-                    userService.onRoomTokenWillExpire(remainTimeInSecond, roomID);
-                }
+                dispatcher.post("token:" + roomID, () -> {
+                    if (userService != null) {
+                        userService.onRoomTokenWillExpire(remainTimeInSecond, roomID);
+                    }
+                });
             }
         });
 
@@ -132,9 +191,11 @@ public class ZegoRoomManager {
                 Log.d(TAG,
                     "onConnectionStateChanged() called with: zim = [" + zim + "], state = [" + state + "], event = ["
                         + event + "], extendedData = [" + extendedData + "]");
-                if (userService != null) {
-                    userService.onConnectionStateChanged(zim, state, event, extendedData);
-                }
+                dispatcher.post(() -> {
+                    if (userService != null) {
+                        userService.onConnectionStateChanged(zim, state, event, extendedData);
+                    }
+                });
             }
 
             @Override
@@ -145,17 +206,23 @@ public class ZegoRoomManager {
             @Override
             public void onTokenWillExpire(ZIM zim, int second) {
                 super.onTokenWillExpire(zim, second);
-                if (userService != null) {
-                    userService.onRoomTokenWillExpire(second, userService.getRoomInfo().roomID);
-                }
+                dispatcher.post("token", () -> {
+                    if (userService != null) {
+                        // the token of the ZIM login, renewed along with the room of the current call if there is one
+                        ZegoRoomInfo roomInfo = userService.getRoomInfo();
+                        userService.onRoomTokenWillExpire(second, roomInfo == null ? null : roomInfo.roomID);
+                    }
+                });
             }
 
             @Override
             public void onReceivePeerMessage(ZIM zim, ArrayList<ZIMMessage> messageList, String fromUserID) {
                 super.onReceivePeerMessage(zim, messageList, fromUserID);
-                if (userService != null) {
-                    userService.onReceivePeerMessage(zim, messageList, fromUserID);
-                }
+                dispatcher.post(() -> {
+                    if (userService != null) {
+                        userService.onReceivePeerMessage(zim, messageList, fromUserID);
+                    }
+                });
             }
 
             @Override
@@ -166,17 +233,21 @@ public class ZegoRoomManager {
             @Override
             public void onRoomMemberJoined(ZIM zim, ArrayList<ZIMUserInfo> memberList, String roomID) {
                 super.onRoomMemberJoined(zim, memberList, roomID);
-                if (userService != null) {
-                    userService.onRoomMemberJoined(zim, memberList, roomID);
-                }
+                dispatcher.post(() -> {
+                    if (userService != null) {
+                        userService.onRoomMemberJoined(zim, memberList, roomID);
+                    }
+                });
             }
 
             @Override
             public void onRoomMemberLeft(ZIM zim, ArrayList<ZIMUserInfo> memberList, String roomID) {
                 super.onRoomMemberLeft(zim, memberList, roomID);
-                if (userService != null) {
-                    userService.onRoomMemberLeft(zim, memberList, roomID);
-                }
+                dispatcher.post(() -> {
+                    if (userService != null) {
+                        userService.onRoomMemberLeft(zim, memberList, roomID);
+                    }
+                });
             }
 
             @Override
@@ -186,17 +257,21 @@ public class ZegoRoomManager {
                 Log.d(TAG,
                     "onRoomStateChanged() called with: zim = [" + zim + "], state = [" + state + "], event = [" + event
                         + "], extendedData = [" + extendedData + "], roomID = [" + roomID + "]");
-                if (userService != null) {
-                    userService.onRoomStateChanged(zim, state, event, extendedData, roomID);
-                }
+                dispatcher.post(() -> {
+                    if (userService != null) {
+                        userService.onRoomStateChanged(zim, state, event, extendedData, roomID);
+                    }
+                });
             }
 
             @Override
             public void onRoomAttributesUpdated(ZIM zim, ZIMRoomAttributesUpdateInfo info, String roomID) {
                 super.onRoomAttributesUpdated(zim, info, roomID);
-                if (userService != null) {
-                    userService.onRoomAttributesUpdated(zim, info, roomID);
-                }
+                dispatcher.post(() -> {
+                    if (userService != null) {
+                        userService.onRoomAttributesUpdated(zim, info, roomID);
+                    }
+                });
             }
 
             @Override
@@ -214,6 +289,9 @@ public class ZegoRoomManager {
      * application exits.</>
      */
     public void unInit() {
+        if (timerWheel != null) {
+            timerWheel.stop();
+        }
         ZegoZIMManager.getInstance().destroyZIM();
         ZegoExpressEngine.destroyEngine(null);
     }
@@ -10,6 +10,7 @@ import im.zego.callsdk.ZegoZIMManager;
 import im.zego.callsdk.callback.ZegoRoomCallback;
 import im.zego.callsdk.model.ZegoRoomInfo;
 import im.zego.callsdk.model.ZegoUserInfo;
+import im.zego.callsdk.utils.ZegoCodecRegistry;
 import im.zego.zegoexpress.ZegoExpressEngine;
 import im.zego.zegoexpress.entity.ZegoRoomConfig;
 import im.zego.zegoexpress.entity.ZegoUser;
@@ -25,11 +26,9 @@ import im.zego.zim.enums.ZIMErrorCode;
  */
 public class ZegoRoomService {
 
-    public ZegoRoomInfo roomInfo = new ZegoRoomInfo();
-
     public static final String KEY_ROOM_INFO = "room_info";
     private static final String TAG = "RoomService";
-    private static Gson mGson = new Gson();
+    private static final Gson mGson = ZegoCodecRegistry.gson();
 
     /**
      * Create a room
@@ -38,16 +37,19 @@ public class ZegoRoomService {
      * <p>
      * Call this method at: After user logs in
      *
-     * @param roomID   refers to the room ID, the unique identifier of the room. This is required to join a room and cannot be null.
+     * @param session  refers to the session of the call, its room ID is the unique identifier of the room.
      * @param roomName refers to the room name. This is used for display in the room and cannot be null.
      * @param token    refers to the authentication token. To get this, see the documentation: https://doc-en.zego.im/article/11648
      * @param callback refers to the callback for create a room.
      */
-    public void createRoom(String roomID, String roomName, String token, ZegoRoomCallback callback) {
+    public void createRoom(ZegoCallSession session, String roomName, String token, ZegoRoomCallback callback) {
         ZegoUserInfo localUserInfo = ZegoRoomManager.getInstance().userService.localUserInfo;
 
+        String roomID = session.getRoomID();
+        ZegoRoomInfo roomInfo = new ZegoRoomInfo();
         roomInfo.roomID = (roomID);
         roomInfo.roomName = (roomName);
+        session.roomInfo = roomInfo;
 
         ZIMRoomInfo zimRoomInfo = new ZIMRoomInfo();
         zimRoomInfo.roomID = roomID;
@@ -75,18 +77,21 @@ public class ZegoRoomService {
      * <p>
      * Call this method at: After user logs in
      *
-     * @param roomID   refers to the ID of the room you want to join, and cannot be null.
+     * @param session  refers to the session of the call, holding the ID of the room you want to join.
      * @param token    refers to the authentication token. To get this, see the documentation: https://doc-en.zego.im/article/11648
      * @param callback refers to the callback for join a room.
      */
-    public void joinRoom(String roomID, String token, ZegoRoomCallback callback) {
+    public void joinRoom(ZegoCallSession session, String token, ZegoRoomCallback callback) {
         ZegoUserInfo localUserInfo = ZegoRoomManager.getInstance().userService.localUserInfo;
 
+        String roomID = session.getRoomID();
         ZegoZIMManager.getInstance().zim.joinRoom(roomID, (roomInfo, errorInfo) -> {
             if (errorInfo.code == ZIMErrorCode.SUCCESS) {
                 loginRTCRoom(roomID, token, localUserInfo);
-                this.roomInfo.roomID = (roomInfo.baseInfo.roomID);
-                this.roomInfo.roomName = (roomInfo.baseInfo.roomName);
+                if (session.roomInfo != null) {
+                    session.roomInfo.roomID = (roomInfo.baseInfo.roomID);
+                    session.roomInfo.roomName = (roomInfo.baseInfo.roomName);
+                }
             }
             if (callback != null) {
                 callback.onRoomCallback(errorInfo.code.value());
@@ -101,20 +106,20 @@ public class ZegoRoomService {
      * <p>
      * Call this method at: After joining a room
      *
+     * @param session  refers to the session of the call whose room you want to leave.
      * @param callback refers to the callback for leave a room.
      */
-    public void leaveRoom(ZegoRoomCallback callback) {
-        ZegoUserService userService = ZegoRoomManager.getInstance().userService;
-        if (userService != null) {
-            userService.leaveRoom();
-        }
-
+    public void leaveRoom(ZegoCallSession session, ZegoRoomCallback callback) {
         ZegoExpressEngine.getEngine().stopSoundLevelMonitor();
-        ZegoExpressEngine.getEngine().stopPublishingStream();
+        if (session.publishing) {
+            // the stream of another session is left alone
+            session.publishing = false;
+            ZegoExpressEngine.getEngine().stopPublishingStream();
+        }
 
-        ZegoExpressEngine.getEngine().logoutRoom(roomInfo.roomID);
+        ZegoExpressEngine.getEngine().logoutRoom(session.getRoomID());
 
-        ZegoZIMManager.getInstance().zim.leaveRoom(roomInfo.roomID, errorInfo -> {
+        ZegoZIMManager.getInstance().zim.leaveRoom(session.getRoomID(), errorInfo -> {
             Log.d(TAG, "leaveRoom() called with: errorInfo = [" + errorInfo.code + "]" + errorInfo.message);
             if (callback != null) {
                 callback.onRoomCallback(errorInfo.code.value());
@@ -129,8 +134,4 @@ public class ZegoRoomService {
         ZegoExpressEngine.getEngine().loginRoom(roomID, user, roomConfig);
         ZegoExpressEngine.getEngine().startSoundLevelMonitor(500);
     }
-
-    public void updateRoomInfo(ZegoRoomInfo roomInfo) {
-        this.roomInfo = roomInfo;
-    }
 }
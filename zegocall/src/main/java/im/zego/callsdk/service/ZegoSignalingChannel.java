@@ -0,0 +1,347 @@
+package im.zego.callsdk.service;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import im.zego.callsdk.ZegoZIMManager;
+import im.zego.callsdk.callback.ZegoRoomCallback;
+import im.zego.callsdk.model.ZegoCallMessage;
+import im.zego.callsdk.model.ZegoCallType;
+import im.zego.callsdk.model.ZegoCancelType;
+import im.zego.callsdk.model.ZegoResponseType;
+import im.zego.callsdk.model.ZegoRetryPolicy;
+import im.zego.callsdk.model.ZegoSignalingStats;
+import im.zego.callsdk.utils.ZegoCallMessageCodec;
+import im.zego.callsdk.utils.ZegoTimerWheel;
+import im.zego.zim.entity.ZIMCustomMessage;
+import im.zego.zim.enums.ZIMErrorCode;
+
+/**
+ * The signaling messages between the local user and its peers, sent as ZIM peer messages.
+ * <p>
+ * Description: Every message the local user sends is numbered with a seq, unique among its messages: the seqs start
+ * from the login time in milliseconds and grow by one, so they keep growing when the app restarts. The receiver
+ * acknowledges each numbered message with an ACK carrying its seq, and drops a message it already handled, found among
+ * the last ones it received in a fixed ring. A message is sent again, with the same seq, until it is acknowledged or
+ * the {@link ZegoRetryPolicy} of its action type gives up. Only the peers that advertised
+ * {@link ZegoCallMessageCodec#SEQ_WIRE_VERSION} or above get a message more than once. A peer known to be older, or not
+ * heard from since the login, gets each message once: an older peer neither acknowledges nor drops duplicates, and
+ * would take a second invite for another call and reject it. Everything runs on the main thread.
+ */
+final class ZegoSignalingChannel {
+
+    private static final String TAG = "SignalingChannel";
+    // the number of received messages remembered to drop their duplicates
+    private static final int RECENT_CAPACITY = 256;
+    // how long the ack of the last send is waited for at least
+    private static final long LAST_ACK_WAIT_MILLIS = 3000;
+
+    /**
+     * The result of sending a message to one of several peers.
+     */
+    interface PeerCallback {
+
+        void onPeerCallback(String userID, int errorCode);
+    }
+
+    /**
+     * Where the bytes of a message go, a ZIM peer message outside the tests.
+     */
+    interface Transport {
+
+        void send(String userID, byte[] bytes, ZegoRoomCallback callback);
+    }
+
+    private final ZegoTimerWheel timerWheel;
+    private final Transport transport;
+    // the binary wire version each peer advertised in its last message, by userID, 0 for a peer that advertised none
+    private final Map<String, Integer> peerWireVersions = new HashMap<>();
+    private final Map<Integer, ZegoRetryPolicy> retryPolicies = new HashMap<>();
+    private final Map<Integer, ZegoSignalingStats> stats = new HashMap<>();
+    // the messages sent and not acknowledged yet, by userID and seq
+    private final Map<String, Pending> pending = new HashMap<>();
+    // the IDs of the last messages received, and the same IDs in a set to look them up
+    private final String[] recentIDs = new String[RECENT_CAPACITY];
+    private final Set<String> recentIDSet = new HashSet<>();
+    private int recentIndex;
+    // the messages of the local user, encoded once per user
+    private ZegoCallMessageCodec.Template template;
+    private long nextSeq;
+
+    ZegoSignalingChannel(ZegoTimerWheel timerWheel) {
+        this(timerWheel, ZegoSignalingChannel::sendZIMPeerMessage);
+    }
+
+    ZegoSignalingChannel(ZegoTimerWheel timerWheel, Transport transport) {
+        this.timerWheel = timerWheel;
+        this.transport = transport;
+        retryPolicies.put(ZegoCallMessage.CALL, new ZegoRetryPolicy(4, 500, 4000));
+        retryPolicies.put(ZegoCallMessage.CANCEL_CALL, new ZegoRetryPolicy(5, 300, 4000));
+        retryPolicies.put(ZegoCallMessage.RESPONSE_CALL, new ZegoRetryPolicy(5, 300, 4000));
+    }
+
+    void login(String userID, String userName) {
+        if (template == null || !template.isFor(userID, userName)) {
+            template = new ZegoCallMessageCodec.Template(userID, userName);
+        }
+        nextSeq = Math.max(nextSeq, System.currentTimeMillis());
+    }
+
+    void logout() {
+        for (Pending message : pending.values()) {
+            message.timeout.cancel();
+        }
+        pending.clear();
+        peerWireVersions.clear();
+    }
+
+    void setRetryPolicy(int actionType, ZegoRetryPolicy policy) {
+        retryPolicies.put(actionType, policy);
+    }
+
+    ZegoSignalingStats getStats(int actionType) {
+        return new ZegoSignalingStats(statsOf(actionType));
+    }
+
+    /**
+     * Send one invite, encoded once for every callee, to each of them. The callback gets the result of the first send
+     * to each callee.
+     */
+    void call(List<String> userIDs, ZegoCallType callType, PeerCallback callback) {
+        // the binary form only if every callee reads it
+        int wireVersion = Integer.MAX_VALUE;
+        for (String userID : userIDs) {
+            wireVersion = Math.min(wireVersion, getPeerWireVersion(userID));
+        }
+        long seq = nextSeq++;
+        byte[] invite = template.call(userIDs, callType, seq, wireVersion);
+        for (String userID : userIDs) {
+            // a cancel of an earlier call still being sent again would end this one
+            forget(userID, ZegoCallMessage.CANCEL_CALL);
+            send(ZegoCallMessage.CALL, userID, seq, invite, errorCode -> callback.onPeerCallback(userID, errorCode));
+        }
+    }
+
+    void cancel(String userID, ZegoCancelType cancelType, ZegoRoomCallback callback) {
+        // the invite is not sent again once the call is canceled
+        forget(userID, ZegoCallMessage.CALL);
+        long seq = nextSeq++;
+        send(ZegoCallMessage.CANCEL_CALL, userID, seq,
+            template.cancel(userID, cancelType, seq, getPeerWireVersion(userID)), callback);
+    }
+
+    void respond(String userID, ZegoResponseType responseType, ZegoRoomCallback callback) {
+        long seq = nextSeq++;
+        send(ZegoCallMessage.RESPONSE_CALL, userID, seq,
+            template.response(userID, responseType, seq, getPeerWireVersion(userID)), callback);
+    }
+
+    /**
+     * Acknowledge a received message and tell whether it is to be handled.
+     *
+     * @return false for an ack or a message handled already, true otherwise.
+     */
+    boolean onReceive(ZegoCallMessage message, String fromUserID) {
+        if (message.actionType == ZegoCallMessage.ACK) {
+            updatePeerWireVersion(fromUserID, message);
+            if (message.seq != null) {
+                onAck(fromUserID, message.seq);
+            }
+            return false;
+        }
+        if (message.seq == null) {
+            updatePeerWireVersion(fromUserID, message);
+            onResponse(fromUserID, message);
+            return true;
+        }
+        // acknowledged again if it is a duplicate, the first ack may be what got lost
+        sendAck(fromUserID, message.seq);
+        String messageID = keyOf(fromUserID, message.seq);
+        if (!recentIDSet.add(messageID)) {
+            statsOf(message.actionType).duplicates++;
+            Log.d(TAG, "onReceive: duplicate " + messageID);
+            return false;
+        }
+        // a late duplicate tells nothing new about the peer
+        updatePeerWireVersion(fromUserID, message);
+        onResponse(fromUserID, message);
+        String evicted = recentIDs[recentIndex];
+        if (evicted != null) {
+            recentIDSet.remove(evicted);
+        }
+        recentIDs[recentIndex] = messageID;
+        recentIndex = (recentIndex + 1) % RECENT_CAPACITY;
+        return true;
+    }
+
+    private void updatePeerWireVersion(String userID, ZegoCallMessage message) {
+        // no version when the peer went back to a version that only reads JSON
+        peerWireVersions.put(userID, message.wireVersion == null ? 0 : message.wireVersion);
+    }
+
+    private void onResponse(String userID, ZegoCallMessage message) {
+        if (message.actionType == ZegoCallMessage.RESPONSE_CALL) {
+            // the callee got the invite
+            forget(userID, ZegoCallMessage.CALL);
+        }
+    }
+
+    int getPeerWireVersion(String userID) {
+        Integer peerWireVersion = peerWireVersions.get(userID);
+        return peerWireVersion == null ? 0 : peerWireVersion;
+    }
+
+    private void send(int actionType, String userID, long seq, byte[] bytes, ZegoRoomCallback callback) {
+        statsOf(actionType).sent++;
+        Pending message = new Pending(actionType, userID, seq, bytes);
+        pending.put(message.key, message);
+        message.schedule();
+        sendPeerMessage(userID, bytes, errorCode -> {
+            if (errorCode != ZIMErrorCode.SUCCESS.value()) {
+                // not sent at all, the caller decides what to do
+                forget(message);
+            }
+            if (callback != null) {
+                callback.onRoomCallback(errorCode);
+            }
+        });
+    }
+
+    private void sendAck(String userID, long seq) {
+        byte[] ack = template.ack(userID, seq, getPeerWireVersion(userID));
+        sendPeerMessage(userID, ack, errorCode -> {
+            if (errorCode != ZIMErrorCode.SUCCESS.value()) {
+                Log.w(TAG, "sendAck: seq = [" + seq + "] to " + userID + ", errorCode = [" + errorCode + "]");
+            }
+        });
+    }
+
+    private void onAck(String userID, long seq) {
+        Pending message = pending.remove(keyOf(userID, seq));
+        if (message == null) {
+            return;
+        }
+        message.timeout.cancel();
+        long latency = SystemClock.elapsedRealtime() - message.firstSentTime;
+        ZegoSignalingStats actionStats = statsOf(message.actionType);
+        actionStats.acked++;
+        actionStats.lastLatency = latency;
+        actionStats.maxLatency = Math.max(actionStats.maxLatency, latency);
+        actionStats.totalLatency += latency;
+    }
+
+    private void forget(String userID, int actionType) {
+        List<Pending> forgotten = new ArrayList<>();
+        for (Pending message : pending.values()) {
+            if (message.actionType == actionType && message.userID.equals(userID)) {
+                forgotten.add(message);
+            }
+        }
+        for (Pending message : forgotten) {
+            forget(message);
+        }
+    }
+
+    private void forget(Pending message) {
+        if (pending.remove(message.key) != null) {
+            message.timeout.cancel();
+        }
+    }
+
+    private void sendPeerMessage(String userID, byte[] bytes, ZegoRoomCallback callback) {
+        transport.send(userID, bytes, callback);
+    }
+
+    private static void sendZIMPeerMessage(String userID, byte[] bytes, ZegoRoomCallback callback) {
+        ZIMCustomMessage custom = new ZIMCustomMessage();
+        custom.message = bytes;
+        ZegoZIMManager.getInstance().zim.sendPeerMessage(custom, userID,
+            (message, errorInfo) -> callback.onRoomCallback(errorInfo.code.value()));
+    }
+
+    private static String keyOf(String userID, long seq) {
+        return userID + "/" + seq;
+    }
+
+    private ZegoRetryPolicy retryPolicyOf(int actionType) {
+        ZegoRetryPolicy policy = retryPolicies.get(actionType);
+        return policy == null ? ZegoRetryPolicy.NONE : policy;
+    }
+
+    private ZegoSignalingStats statsOf(int actionType) {
+        ZegoSignalingStats actionStats = stats.get(actionType);
+        if (actionStats == null) {
+            actionStats = new ZegoSignalingStats();
+            stats.put(actionType, actionStats);
+        }
+        return actionStats;
+    }
+
+    /**
+     * A message waiting for its ack, run when the wait is over.
+     */
+    private final class Pending implements Runnable {
+
+        private final int actionType;
+        private final String userID;
+        private final String key;
+        private final byte[] bytes;
+        private final long firstSentTime = SystemClock.elapsedRealtime();
+        private int attempt = 1;
+        // the wait for the ack of the last send
+        private ZegoTimerWheel.Timeout timeout;
+
+        Pending(int actionType, String userID, long seq, byte[] bytes) {
+            this.actionType = actionType;
+            this.userID = userID;
+            this.key = keyOf(userID, seq);
+            this.bytes = bytes;
+        }
+
+        void schedule() {
+            ZegoRetryPolicy policy = retryPolicyOf(actionType);
+            long delay = policy.getDelayMillis(attempt + 1);
+            if (attempt >= policy.maxAttempts) {
+                delay = Math.max(delay, LAST_ACK_WAIT_MILLIS);
+            }
+            timeout = timerWheel.newTimeout(this, delay);
+        }
+
+        @Override
+        public void run() {
+            if (!isRetried()) {
+                // the peer does not acknowledge, a second send would only be a duplicate to it
+                pending.remove(key);
+                return;
+            }
+            if (attempt >= retryPolicyOf(actionType).maxAttempts) {
+                pending.remove(key);
+                statsOf(actionType).failed++;
+                Log.w(TAG, "no ack for " + key + " after " + attempt + " attempts, actionType = [" + actionType + "]");
+                return;
+            }
+            attempt++;
+            statsOf(actionType).retries++;
+            Log.d(TAG, "resend " + key + ", attempt " + attempt);
+            sendPeerMessage(userID, bytes, errorCode -> {
+                if (errorCode != ZIMErrorCode.SUCCESS.value()) {
+                    Log.w(TAG, "resend " + key + ": errorCode = [" + errorCode + "]");
+                }
+            });
+            schedule();
+        }
+
+        private boolean isRetried() {
+            // not heard from since the login, the peer may be older
+            Integer peerWireVersion = peerWireVersions.get(userID);
+            return peerWireVersion != null && peerWireVersion >= ZegoCallMessageCodec.SEQ_WIRE_VERSION;
+        }
+    }
+}
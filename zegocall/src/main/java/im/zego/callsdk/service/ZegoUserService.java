@@ -1,41 +1,53 @@
 package im.zego.callsdk.service;
 
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.TextureView;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 
 import org.json.JSONObject;
 
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
+import java.util.Set;
 
 import im.zego.callsdk.ZegoZIMManager;
 import im.zego.callsdk.callback.ZegoRoomCallback;
 import im.zego.callsdk.listener.ZegoUserServiceListener;
 import im.zego.callsdk.model.ZegoCallMessage;
-import im.zego.callsdk.model.ZegoCallMessage.ContentBean;
-import im.zego.callsdk.model.ZegoCallMessage.UserInfoBean;
+import im.zego.callsdk.model.ZegoCallTimeoutType;
 import im.zego.callsdk.model.ZegoCallType;
 import im.zego.callsdk.model.ZegoCancelType;
+import im.zego.callsdk.model.ZegoDialTimings;
 import im.zego.callsdk.model.ZegoNetWorkQuality;
 import im.zego.callsdk.model.ZegoResponseType;
+import im.zego.callsdk.model.ZegoRetryPolicy;
 import im.zego.callsdk.model.ZegoRoomInfo;
+import im.zego.callsdk.model.ZegoSignalingStats;
 import im.zego.callsdk.model.ZegoUserInfo;
-import im.zego.callsdk.utils.CustomTypeAdapterFactory;
+import im.zego.callsdk.utils.ZegoCallMessageCodec;
+import im.zego.callsdk.utils.ZegoCodecRegistry;
+import im.zego.callsdk.utils.ZegoEventDispatcher;
+import im.zego.callsdk.utils.ZegoTimerWheel;
 import im.zego.zegoexpress.ZegoExpressEngine;
 import im.zego.zegoexpress.constants.ZegoOrientation;
 import im.zego.zegoexpress.constants.ZegoStreamQualityLevel;
+import im.zego.zegoexpress.constants.ZegoUpdateType;
 import im.zego.zegoexpress.constants.ZegoViewMode;
 import im.zego.zegoexpress.entity.ZegoCanvas;
+import im.zego.zegoexpress.entity.ZegoStream;
 import im.zego.zim.ZIM;
 import im.zego.zim.callback.ZIMLoggedInCallback;
 import im.zego.zim.callback.ZIMTokenRenewedCallback;
@@ -64,23 +76,54 @@ public class ZegoUserService {
     // The local logged-in user information.
     public ZegoUserInfo localUserInfo;
 
-    // In-room user list, can be used when displaying the user list in the room.
-    private List<ZegoUserInfo> userList;
-
     private static final String TAG = "UserService";
+    // with fast dial, how long a callee keeps trying to join a room the caller may still be creating
+    private static final long ROOM_READY_TIMEOUT_MILLIS = 5000;
+    private static final long ROOM_READY_RETRY_MILLIS = 300;
 
-    // The listener related to user status
+    // The listener related to user status, its calls are queued on the dispatcher
     private ZegoUserServiceListener listener;
+    // the listener set by the app, read when the queued calls run
+    private ZegoUserServiceListener appListener;
+    private final ZegoEventDispatcher dispatcher;
+    // the timers of the calls and of the messages
+    private final ZegoTimerWheel timerWheel;
     private ZegoRoomService roomService;
-    private static Gson mGson;
-    private Map<String, String> streamMap = new HashMap();
+    private static final Gson mGson = ZegoCodecRegistry.gson();
+    // the call messages to and from the peers, acknowledged and sent again until they are
+    private final ZegoSignalingChannel signaling;
+    // the call timeouts set by the app, the others wait for their default
+    private final Map<ZegoCallTimeoutType, Long> callTimeouts = new EnumMap<>(ZegoCallTimeoutType.class);
+    // the inbound calls not answered yet, by the userID of the caller
+    private final Map<String, ZegoTimerWheel.Timeout> answerTimers = new HashMap<>();
+    // the callers whose invite rings, an invite sent again by one of them is not shown twice
+    private final Set<String> ringingCallers = new HashSet<>();
+    private boolean fastDialEnabled;
+    private ZegoDialTimings lastDialTimings;
+    // the speculative join of the room of the caller that is ringing
+    private PreJoin preJoin;
+    // the sessions of the calls that are set up or ringing, by room ID
+    private final Map<String, ZegoCallSession> sessions = new HashMap<>();
+    // the session of the call on screen, the one the methods without a room ID act on
+    private ZegoCallSession currentSession;
 
+    /**
+     * Create a service of its own, whose events and timers run on the main thread. The app usually takes the one of
+     * {@link ZegoRoomManager} instead.
+     */
     public ZegoUserService() {
+        this(new Handler(Looper.getMainLooper()));
+    }
+
+    private ZegoUserService(Handler mainHandler) {
+        this(ZegoRoomManager.newEventDispatcher(mainHandler), ZegoRoomManager.newTimerWheel(mainHandler));
+    }
+
+    ZegoUserService(ZegoEventDispatcher dispatcher, ZegoTimerWheel timerWheel) {
+        this.dispatcher = dispatcher;
+        this.timerWheel = timerWheel;
+        signaling = new ZegoSignalingChannel(timerWheel);
         roomService = new ZegoRoomService();
-        GsonBuilder builder = new GsonBuilder();
-        builder.registerTypeAdapterFactory(new CustomTypeAdapterFactory());
-        mGson = builder.create();
-        userList = new ArrayList<>();
     }
 
     /**
@@ -105,6 +148,7 @@ public class ZegoUserService {
                     localUserInfo = new ZegoUserInfo();
                     localUserInfo.userID = userInfo.userID;
                     localUserInfo.userName = userInfo.userName;
+                    signaling.login(localUserInfo.userID, localUserInfo.userName);
                 }
                 if (callback != null) {
                     callback.onRoomCallback(errorInfo.code.value());
@@ -123,17 +167,76 @@ public class ZegoUserService {
     public void logout() {
         Log.d(TAG, "logout() called");
         ZegoZIMManager.getInstance().zim.logout();
-        leaveRoom();
+        signaling.logout();
+        for (ZegoTimerWheel.Timeout timeout : answerTimers.values()) {
+            timeout.cancel();
+        }
+        answerTimers.clear();
+        ringingCallers.clear();
+        if (preJoin != null) {
+            cancelPreJoin(preJoin.session.getRoomID());
+        }
+        for (ZegoCallSession session : new ArrayList<>(sessions.values())) {
+            closeSession(session);
+        }
     }
 
-    void leaveRoom() {
-        userList.clear();
+    /**
+     * Get the session of the current call
+     * <p>
+     * Call this method at: After the call is connected
+     *
+     * @return the session of the call on screen, null if there is none.
+     */
+    public ZegoCallSession getCurrentSession() {
+        return currentSession;
+    }
+
+    /**
+     * Get the session of a call by its room
+     * <p>
+     * Description: Besides the current call, a session is open for the room of a caller joined while the call rings.
+     * <p>
+     * Call this method at: After the user login
+     *
+     * @param roomID refers to the ID of the room of the call.
+     * @return the session of the call, null if no session is open for the room.
+     */
+    public ZegoCallSession getSession(String roomID) {
+        return sessions.get(roomID);
+    }
+
+    private ZegoCallSession openSession(String roomID) {
+        ZegoCallSession session = sessions.get(roomID);
+        if (session == null) {
+            session = new ZegoCallSession(roomID, timerWheel);
+            sessions.put(roomID, session);
+        }
+        return session;
+    }
+
+    /**
+     * Drop the state and the timers of a session without leaving its room.
+     */
+    private void closeSession(ZegoCallSession session) {
+        session.close();
+        if (sessions.get(session.getRoomID()) == session) {
+            sessions.remove(session.getRoomID());
+        }
+        if (currentSession == session) {
+            currentSession = null;
+        }
+    }
+
+    private void leaveSession(ZegoCallSession session, ZegoRoomCallback callback) {
+        roomService.leaveRoom(session, callback);
+        closeSession(session);
     }
 
     /**
      * Make an outbound call
      * <p>
-     * Description: This method can be used to initiate a call to a online user. The called user receives a notification once this method gets called. And if the call is not answered in 60 seconds, you will need to call a method to cancel the call.
+     * Description: This method can be used to initiate a call to a online user. The called user receives a notification once this method gets called. And if the call is not answered in 60 seconds, the SDK cancels the call and triggers onCallTimeout.
      * <p>
      * Call this method at: After the user login
      *
@@ -146,35 +249,169 @@ public class ZegoUserService {
         Log.d(TAG,
             "callUser() called with: userID = [" + userID + "], callType = [" + callType + "], createRoomToken = ["
                 + createRoomToken + "], callback = [" + callback + "]");
+        callUsers(Collections.singletonList(userID), callType, createRoomToken, callback);
+    }
+
+    /**
+     * Make an outbound call to several users
+     * <p>
+     * Description: This method can be used to call several online users into one room. One invite targeting every callee is encoded once and sent to each of them, and the response of each callee is tracked on its own. The call goes on while a callee is ringing, has accepted, or is in the room. If a callee does not answer in 60 seconds, the SDK cancels the call for that callee and triggers onCallTimeout.
+     * <p>
+     * Call this method at: After the user login
+     *
+     * @param userIDs  refers to the IDs of the users you want to call, cannot be empty.
+     * @param callType refers to the call type.  ZegoCallTypeVoice: Voice call.  ZegoCallTypeVideo: Video call.
+     * @param createRoomToken: refers to the authentication token. To get this, see the documentation: https://docs.zegocloud.com/article/11648
+     * @param callback refers to the callback for make a outbound call, successful if any callee received the invite.
+     */
+    public void callUsers(List<String> userIDs, ZegoCallType callType, String createRoomToken,
+        ZegoRoomCallback callback) {
+        Log.d(TAG, "callUsers() called with: userIDs = [" + userIDs + "], callType = [" + callType + "]");
+        if (userIDs.isEmpty()) {
+            throw new IllegalArgumentException("userIDs is empty");
+        }
         if (localUserInfo != null) {
-            String roomID = localUserInfo.userID;
-            roomService.createRoom(roomID, localUserInfo.userName, createRoomToken, errorCode -> {
+            ZegoCallSession session = openSession(localUserInfo.userID);
+            currentSession = session;
+            session.callees.clear();
+            for (String userID : userIDs) {
+                session.callees.put(userID, null);
+            }
+            List<String> targets = new ArrayList<>(session.callees.keySet());
+            if (fastDialEnabled) {
+                new FastDial(session, targets, callback).start(callType, createRoomToken);
+                return;
+            }
+            long startTime = SystemClock.elapsedRealtime();
+            ZegoDialTimings timings = new ZegoDialTimings();
+            lastDialTimings = timings;
+            roomService.createRoom(session, localUserInfo.userName, createRoomToken, errorCode -> {
                 if (errorCode == ZIMErrorCode.SUCCESS.value()) {
-                    ZegoCallMessage callMessage = new ZegoCallMessage();
-                    callMessage.actionType = ZegoCallMessage.CALL;
-                    callMessage.target = Collections.singletonList(userID);
-                    ZegoCallMessage.ContentBean contentBean = new ContentBean();
-                    contentBean.userInfo = new UserInfoBean(localUserInfo.userID, localUserInfo.userName);
-                    contentBean.callType = callType;
-                    callMessage.content = contentBean;
-                    String messageJson = mGson.toJson(callMessage);
-                    ZIMCustomMessage custom = new ZIMCustomMessage();
-                    custom.message = messageJson.getBytes(StandardCharsets.UTF_8);
-                    ZegoZIMManager.getInstance().zim.sendPeerMessage(custom, userID, (message, errorInfo) -> {
+                    timings.roomCreated = SystemClock.elapsedRealtime() - startTime;
+                    sendInvites(session, targets, callType, errorCode1 -> {
+                        if (errorCode1 == ZIMErrorCode.SUCCESS.value()) {
+                            timings.inviteSent = SystemClock.elapsedRealtime() - startTime;
+                            startRingTimer(session);
+                        }
+                        Log.d(TAG, "callUsers: " + timings);
                         if (callback != null) {
-                            callback.onRoomCallback(errorInfo.code.value());
+                            callback.onRoomCallback(errorCode1);
                         }
                     });
-                    ZegoExpressEngine.getEngine().startPublishingStream(getStreamIDFromUser(localUserInfo.userID));
+                    startPublishing(session);
+                    timings.publishStarted = SystemClock.elapsedRealtime() - startTime;
                 } else {
+                    closeSession(session);
                     if (callback != null) {
                         callback.onRoomCallback(errorCode);
                     }
                 }
             });
         } else {
-            callback.onRoomCallback(ZIMErrorCode.NO_LOGIN.value());
+            if (callback != null) {
+                callback.onRoomCallback(ZIMErrorCode.NO_LOGIN.value());
+            }
+        }
+    }
+
+    /**
+     * Get the callees of the outbound call
+     * <p>
+     * Call this method at: After calling callUser or callUsers
+     *
+     * @return the response of each callee that is still tracked, null for those still ringing.
+     */
+    public Map<String, ZegoResponseType> getCallees() {
+        ZegoCallSession session = localUserInfo == null ? null : sessions.get(localUserInfo.userID);
+        return session == null ? new LinkedHashMap<>() : session.getCallees();
+    }
+
+    /**
+     * Enable or disable fast dial
+     * <p>
+     * Description: With fast dial, callUser and callUsers send the invite while the room is being created instead of
+     * after, so the callees start ringing a room round trip earlier. If either step fails, the other is rolled back:
+     * the callees receive a cancel and the room is left. A callee that accepts before the room exists retries to join it for a
+     * few seconds. Disabled by default.
+     * <p>
+     * Call this method at: Before calling callUser or callUsers
+     *
+     * @param enabled refers to whether callUser and callUsers dial fast.
+     */
+    public void setFastDialEnabled(boolean enabled) {
+        this.fastDialEnabled = enabled;
+    }
+
+    /**
+     * Get the timings of the last outbound call
+     * <p>
+     * Call this method at: After calling callUser
+     *
+     * @return the time each phase of the last callUser took, null if callUser was not called.
+     */
+    public ZegoDialTimings getLastDialTimings() {
+        return lastDialTimings;
+    }
+
+    /**
+     * Set the retry policy of a call message
+     * <p>
+     * Description: The call messages are acknowledged by the peers that support it, and sent again until they are, as
+     * the policy of their action type says. Use {@link ZegoRetryPolicy#NONE} to send the messages of an action type
+     * once.
+     * <p>
+     * Call this method at: After the SDK initialization
+     *
+     * @param actionType refers to the action of the messages, such as {@link ZegoCallMessage#CALL}.
+     * @param policy     refers to how many times and how often the messages are sent.
+     */
+    public void setRetryPolicy(int actionType, ZegoRetryPolicy policy) {
+        signaling.setRetryPolicy(actionType, policy);
+    }
+
+    /**
+     * Get the signaling stats of a call message
+     * <p>
+     * Call this method at: After the user login
+     *
+     * @param actionType refers to the action of the messages, such as {@link ZegoCallMessage#CALL}.
+     * @return the counters and ack latencies of the messages of this action type, since the SDK initialization.
+     */
+    public ZegoSignalingStats getSignalingStats(int actionType) {
+        return signaling.getStats(actionType);
+    }
+
+    /**
+     * Set a call timeout
+     * <p>
+     * Description: The SDK times the calls: how long an outbound call rings, how long an inbound call waits for an
+     * answer, how long the connection can be lost during a call and how long a user in the call can stay silent. When
+     * a timer runs out the SDK triggers onCallTimeout, and cancels the call first if it is ringing. The timers stop by
+     * themselves when the call is answered, canceled or ended. Use 0 to disable a timer.
+     * <p>
+     * Call this method at: After the SDK initialization
+     *
+     * @param type          refers to the timer to set.
+     * @param timeoutMillis refers to how long the timer waits, in milliseconds, 0 to disable it.
+     */
+    public void setCallTimeout(ZegoCallTimeoutType type, long timeoutMillis) {
+        if (timeoutMillis < 0) {
+            throw new IllegalArgumentException("timeoutMillis = " + timeoutMillis);
         }
+        callTimeouts.put(type, timeoutMillis);
+    }
+
+    /**
+     * Get a call timeout
+     * <p>
+     * Call this method at: After the SDK initialization
+     *
+     * @param type refers to the timer to get.
+     * @return how long the timer waits, in milliseconds, 0 if it is disabled.
+     */
+    public long getCallTimeout(ZegoCallTimeoutType type) {
+        Long timeoutMillis = callTimeouts.get(type);
+        return timeoutMillis == null ? type.getDefaultMillis() : timeoutMillis;
     }
 
     /**
@@ -193,24 +430,18 @@ public class ZegoUserService {
             "cancelCall() called with: cancelType = [" + cancelType + "], userID = [" + userID + "], callback = ["
                 + callback + "]");
         if (localUserInfo != null) {
-            ZegoCallMessage callMessage = new ZegoCallMessage();
-            callMessage.actionType = ZegoCallMessage.CANCEL_CALL;
-            callMessage.target = Collections.singletonList(userID);
-            ZegoCallMessage.ContentBean contentBean = new ContentBean();
-            contentBean.userInfo = new UserInfoBean(localUserInfo.userID, localUserInfo.userName);
-            contentBean.cancelType = cancelType;
-            callMessage.content = contentBean;
-            String messageJson = mGson.toJson(callMessage);
-            ZIMCustomMessage custom = new ZIMCustomMessage();
-            custom.message = messageJson.getBytes(StandardCharsets.UTF_8);
-            ZegoZIMManager.getInstance().zim.sendPeerMessage(custom, userID, (message, errorInfo) -> {
-                if (callback != null) {
-                    callback.onRoomCallback(errorInfo.code.value());
+            sendCancel(cancelType, userID, callback);
+            // the room of an outbound call is the room of the caller
+            ZegoCallSession session = sessions.get(localUserInfo.userID);
+            if (session != null) {
+                session.callees.remove(userID);
+                // in a call with several callees, stay for the others
+                if (!session.hasActiveCallees()) {
+                    leaveSession(session, null);
+                } else {
+                    updateRingTimer(session);
                 }
-            });
-            roomService.leaveRoom(errorCode -> {
-
-            });
+            }
         } else {
             if (callback != null) {
                 callback.onRoomCallback(ZIMErrorCode.NO_LOGIN.value());
@@ -221,7 +452,7 @@ public class ZegoUserService {
     /**
      * Respond to an incoming call
      * <p>
-     * Description: This method can be used to accept or decline an incoming call. You will need to call this method to respond to the call within 60 seconds upon receiving.
+     * Description: This method can be used to accept or decline an incoming call. You will need to call this method to respond to the call within 60 seconds upon receiving, after that the SDK triggers onCallTimeout.
      * <p>
      * Call this method at: After the user login
      *
@@ -233,25 +464,46 @@ public class ZegoUserService {
         Log.d(TAG, "respondCall() called with: type = [" + type + "], userID = [" + userID + "], joinRoomToken = ["
             + joinRoomToken + "], callback = [" + callback + "]");
         if (localUserInfo != null) {
+            cancelAnswerTimer(userID);
             if (type == ZegoResponseType.Accept) {
-                roomService.joinRoom(userID, joinRoomToken, errorCode -> {
+                PreJoin join = null;
+                if (preJoin != null && preJoin.session.getRoomID().equals(userID)) {
+                    join = preJoin;
+                    preJoin = null;
+                } else if (preJoin != null) {
+                    cancelPreJoin(preJoin.session.getRoomID());
+                }
+                ZegoCallSession session = join != null ? join.session : openSession(userID);
+                currentSession = session;
+                ZegoRoomCallback onRoomJoined = errorCode -> {
                     if (errorCode == ZIMErrorCode.SUCCESS.value()) {
                         responseCallInner(type, userID, errorCode1 -> {
                             if (errorCode1 == ZIMErrorCode.SUCCESS.value()) {
-                                ZegoExpressEngine.getEngine()
-                                    .startPublishingStream(getStreamIDFromUser(localUserInfo.userID));
+                                startPublishing(session);
                             }
                             if (callback != null) {
                                 callback.onRoomCallback(errorCode1);
                             }
                         });
                     } else {
+                        closeSession(session);
                         if (callback != null) {
                             callback.onRoomCallback(errorCode);
                         }
                     }
-                });
+                };
+                if (join != null && join.errorCode == null) {
+                    // the speculative join is still in flight, accept once it completes
+                    join.onJoined = onRoomJoined;
+                } else if (join != null && join.errorCode == ZIMErrorCode.SUCCESS.value()) {
+                    onRoomJoined.onRoomCallback(join.errorCode);
+                } else {
+                    session.joinCanceled = false;
+                    long deadline = SystemClock.elapsedRealtime() + ROOM_READY_TIMEOUT_MILLIS;
+                    joinRoomWhenReady(session, joinRoomToken, deadline, onRoomJoined);
+                }
             } else {
+                cancelPreJoin(userID);
                 responseCallInner(type, userID, callback);
             }
         } else {
@@ -261,22 +513,182 @@ public class ZegoUserService {
         }
     }
 
+    /**
+     * Join the room of a caller in advance
+     * <p>
+     * Description: This method can be used to join the room of a caller while the call is ringing, without
+     * publishing. Accepting the call then only has to send the response and start publishing. Declining the call, or
+     * the caller canceling it, leaves the room again. Only the room of one caller is joined in advance at a time.
+     * <p>
+     * Call this method at: After receiving a call invite, before respondCall
+     *
+     * @param userID        refers to the ID of the caller.
+     * @param joinRoomToken refers to the authentication token to join the room of the caller.
+     */
+    public void preJoinRoom(String userID, String joinRoomToken) {
+        Log.d(TAG, "preJoinRoom() called with: userID = [" + userID + "]");
+        if (localUserInfo == null || (preJoin != null && preJoin.session.getRoomID().equals(userID))) {
+            return;
+        }
+        if (preJoin != null) {
+            cancelPreJoin(preJoin.session.getRoomID());
+        }
+        PreJoin join = new PreJoin(openSession(userID));
+        preJoin = join;
+        long deadline = SystemClock.elapsedRealtime() + ROOM_READY_TIMEOUT_MILLIS;
+        joinRoomWhenReady(join.session, joinRoomToken, deadline, join::complete);
+    }
+
+    /**
+     * Tear the speculative join of the room of a caller down, if there is one, closing its session.
+     */
+    private void cancelPreJoin(String userID) {
+        if (preJoin == null || !preJoin.session.getRoomID().equals(userID)) {
+            return;
+        }
+        PreJoin join = preJoin;
+        preJoin = null;
+        if (join.errorCode != null && join.errorCode == ZIMErrorCode.SUCCESS.value()) {
+            leaveSession(join.session, null);
+        } else {
+            // stops the retries, a join still in flight leaves the room once it completes
+            closeSession(join.session);
+        }
+    }
+
+    /**
+     * Join the room of a caller, retrying until the deadline: with fast dial, the invite can arrive before the room is
+     * created. The retries stop when the caller cancels, and the callback is not called if the session is closed.
+     */
+    private void joinRoomWhenReady(ZegoCallSession session, String token, long deadline, ZegoRoomCallback callback) {
+        roomService.joinRoom(session, token, errorCode -> {
+            if (session.isClosed()) {
+                if (errorCode == ZIMErrorCode.SUCCESS.value()) {
+                    roomService.leaveRoom(session, null);
+                }
+                return;
+            }
+            if (errorCode != ZIMErrorCode.SUCCESS.value() && !session.joinCanceled
+                && SystemClock.elapsedRealtime() + ROOM_READY_RETRY_MILLIS < deadline) {
+                Log.d(TAG, "joinRoomWhenReady: errorCode = [" + errorCode + "], retrying");
+                session.postDelayed(() -> joinRoomWhenReady(session, token, deadline, callback),
+                    ROOM_READY_RETRY_MILLIS);
+                return;
+            }
+            callback.onRoomCallback(errorCode);
+        });
+    }
+
+    private void startRingTimer(ZegoCallSession session) {
+        // every callee may have answered before the invite was reported sent
+        if (session.callees.containsValue(null)) {
+            session.startTimer(ZegoCallTimeoutType.RING, null, getCallTimeout(ZegoCallTimeoutType.RING),
+                () -> onRingTimeout(session));
+        }
+    }
+
+    /**
+     * Stop the ring timeout once no callee is ringing any more.
+     */
+    private void updateRingTimer(ZegoCallSession session) {
+        if (!session.callees.containsValue(null)) {
+            session.cancelTimer(ZegoCallTimeoutType.RING, null);
+        }
+    }
+
+    /**
+     * Cancel the call for the callees still ringing, as cancelCall with a timeout does.
+     */
+    private void onRingTimeout(ZegoCallSession session) {
+        List<String> ringing = new ArrayList<>();
+        for (Entry<String, ZegoResponseType> callee : session.callees.entrySet()) {
+            if (callee.getValue() == null) {
+                ringing.add(callee.getKey());
+            }
+        }
+        Log.d(TAG, "onRingTimeout: " + ringing);
+        boolean current = session == currentSession;
+        for (String userID : ringing) {
+            sendCancel(ZegoCancelType.TIMEOUT, userID, null);
+            session.callees.remove(userID);
+        }
+        if (!session.hasActiveCallees()) {
+            leaveSession(session, null);
+        }
+        if (current && listener != null) {
+            for (String userID : ringing) {
+                listener.onCallTimeout(ZegoCallTimeoutType.RING, userID);
+            }
+        }
+    }
+
+    private void startAnswerTimer(String userID) {
+        cancelAnswerTimer(userID);
+        long timeoutMillis = getCallTimeout(ZegoCallTimeoutType.ANSWER);
+        if (timeoutMillis == 0) {
+            return;
+        }
+        answerTimers.put(userID, timerWheel.newTimeout(() -> {
+            answerTimers.remove(userID);
+            ringingCallers.remove(userID);
+            Log.d(TAG, "onAnswerTimeout: " + userID);
+            cancelPreJoin(userID);
+            if (listener != null) {
+                listener.onCallTimeout(ZegoCallTimeoutType.ANSWER, userID);
+            }
+        }, timeoutMillis));
+    }
+
+    private void cancelAnswerTimer(String userID) {
+        ringingCallers.remove(userID);
+        ZegoTimerWheel.Timeout timeout = answerTimers.remove(userID);
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    /**
+     * Report a timer of the call that ran out, if the call is still the one on screen.
+     */
+    private void onCallTimeout(ZegoCallSession session, ZegoCallTimeoutType type, String userID) {
+        Log.d(TAG, "onCallTimeout: type = [" + type + "], userID = [" + userID + "], session = [" + session + "]");
+        if (session == currentSession && listener != null) {
+            listener.onCallTimeout(type, userID);
+        }
+    }
+
+    private void startPublishing(ZegoCallSession session) {
+        session.publishing = true;
+        ZegoExpressEngine.getEngine().startPublishingStream(session.getStreamID(localUserInfo.userID));
+    }
+
+    /**
+     * Send the invite, encoded once for every callee, to each of them. The callees that do not receive it are no
+     * longer tracked. The callback gets success if any callee received the invite, the last error otherwise.
+     */
+    private void sendInvites(ZegoCallSession session, List<String> userIDs, ZegoCallType callType,
+        ZegoRoomCallback callback) {
+        FanOut fanOut = new FanOut(userIDs.size());
+        signaling.call(userIDs, callType, (userID, errorCode) -> {
+            if (errorCode != ZIMErrorCode.SUCCESS.value()) {
+                Log.w(TAG, "sendInvites: " + userID + " not invited, errorCode = [" + errorCode + "]");
+                session.callees.remove(userID);
+            }
+            if (fanOut.onSent(errorCode) && callback != null) {
+                callback.onRoomCallback(fanOut.getErrorCode());
+            }
+        });
+    }
+
+    private void sendCancel(ZegoCancelType cancelType, String userID, ZegoRoomCallback callback) {
+        signaling.cancel(userID, cancelType, callback);
+    }
+
     private void responseCallInner(ZegoResponseType type, String userID, ZegoRoomCallback callback) {
-        ZegoCallMessage callMessage = new ZegoCallMessage();
-        callMessage.actionType = ZegoCallMessage.RESPONSE_CALL;
-        callMessage.target = Collections.singletonList(userID);
-        ZegoCallMessage.ContentBean contentBean = new ContentBean();
-        contentBean.userInfo = new UserInfoBean(localUserInfo.userID, localUserInfo.userName);
-        contentBean.responseType = type;
-        callMessage.content = contentBean;
-        String messageJson = mGson.toJson(callMessage);
-        ZIMCustomMessage custom = new ZIMCustomMessage();
-        custom.message = messageJson.getBytes(StandardCharsets.UTF_8);
-        ZegoZIMManager.getInstance().zim.sendPeerMessage(custom, userID, (message, errorInfo) -> {
-            Log.d(TAG, "responseCallInner() called with: message = [" + message + "], errorInfo = [" + errorInfo.message
-                + "]");
+        signaling.respond(userID, type, errorCode -> {
+            Log.d(TAG, "responseCallInner() called with: userID = [" + userID + "], errorCode = [" + errorCode + "]");
             if (callback != null) {
-                callback.onRoomCallback(errorInfo.code.value());
+                callback.onRoomCallback(errorCode);
             }
         });
     }
@@ -292,7 +704,14 @@ public class ZegoUserService {
      */
     public void endCall(ZegoRoomCallback callback) {
         Log.d(TAG, "endCall() called with: callback = [" + callback + "]");
-        roomService.leaveRoom(errorCode -> {
+        if (currentSession == null) {
+            // nothing to end
+            if (callback != null) {
+                callback.onRoomCallback(ZIMErrorCode.SUCCESS.value());
+            }
+            return;
+        }
+        leaveSession(currentSession, errorCode -> {
             if (callback != null) {
                 callback.onRoomCallback(errorCode);
             }
@@ -310,12 +729,15 @@ public class ZegoUserService {
      * @param callback refers to the callback for enable or disable the microphone.
      */
     public void enableMic(boolean enable, ZegoRoomCallback callback) {
+        if (!checkInCall(callback)) {
+            return;
+        }
         boolean micState = localUserInfo.mic;
         localUserInfo.mic = enable;
         HashMap<String, String> seatAttributes = new HashMap<>();
         seatAttributes.put(localUserInfo.userID, mGson.toJson(localUserInfo));
 
-        String roomID = roomService.roomInfo.roomID;
+        String roomID = currentSession.getRoomID();
         ZIMRoomAttributesSetConfig setConfig = new ZIMRoomAttributesSetConfig();
         setConfig.isForce = true;
         setConfig.isDeleteAfterOwnerLeft = true;
@@ -347,12 +769,15 @@ public class ZegoUserService {
      * @param callback refers to the callback for enable or disable the camera.
      */
     public void enableCamera(boolean open, ZegoRoomCallback callback) {
+        if (!checkInCall(callback)) {
+            return;
+        }
         boolean cameraState = localUserInfo.camera;
         localUserInfo.camera = open;
         HashMap<String, String> seatAttributes = new HashMap<>();
         seatAttributes.put(localUserInfo.userID, mGson.toJson(localUserInfo));
 
-        String roomID = roomService.roomInfo.roomID;
+        String roomID = currentSession.getRoomID();
         ZIMRoomAttributesSetConfig setConfig = new ZIMRoomAttributesSetConfig();
         setConfig.isForce = true;
         setConfig.isDeleteAfterOwnerLeft = true;
@@ -373,50 +798,119 @@ public class ZegoUserService {
         });
     }
 
+    /**
+     * @return whether the local user is in a call, the callback gets the error otherwise.
+     */
+    private boolean checkInCall(ZegoRoomCallback callback) {
+        int errorCode;
+        if (localUserInfo == null) {
+            errorCode = ZIMErrorCode.NO_LOGIN.value();
+        } else if (currentSession == null) {
+            // there is no room to set the attributes of
+            errorCode = ZIMErrorCode.ROOM_NOT_EXIST.value();
+        } else {
+            return true;
+        }
+        Log.w(TAG, "checkInCall: errorCode = [" + errorCode + "]");
+        if (callback != null) {
+            callback.onRoomCallback(errorCode);
+        }
+        return false;
+    }
+
     public void setListener(ZegoUserServiceListener listener) {
-        this.listener = listener;
+        this.appListener = listener;
+        this.listener = listener == null ? null : new DispatchedListener();
     }
 
     public List<ZegoUserInfo> getUserList() {
-        return userList;
+        return currentSession == null ? Collections.<ZegoUserInfo>emptyList() : currentSession.getUserList();
     }
 
     void onConnectionStateChanged(ZIM zim, ZIMConnectionState state, ZIMConnectionEvent event,
         JSONObject extendedData) {
+        ZegoCallSession session = currentSession;
+        if (session != null) {
+            if (state == ZIMConnectionState.CONNECTED) {
+                session.cancelTimer(ZegoCallTimeoutType.RECONNECT, null);
+            } else if (!session.hasTimer(ZegoCallTimeoutType.RECONNECT, null)) {
+                // the grace runs from the first disconnection, not from the last retry
+                session.startTimer(ZegoCallTimeoutType.RECONNECT, null, getCallTimeout(ZegoCallTimeoutType.RECONNECT),
+                    () -> onCallTimeout(session, ZegoCallTimeoutType.RECONNECT, null));
+            }
+        }
         if (listener != null) {
             listener.onConnectionStateChanged(state, event);
         }
     }
 
     void onReceivePeerMessage(ZIM zim, ArrayList<ZIMMessage> messageList, String fromUserID) {
+        if (localUserInfo == null) {
+            return;
+        }
         for (ZIMMessage zimMessage : messageList) {
             if (zimMessage.type == ZIMMessageType.CUSTOM) {
                 ZIMCustomMessage customMessage = (ZIMCustomMessage) zimMessage;
-                String messageJson = new String(customMessage.message);
-                ZegoCallMessage callMessage = mGson.fromJson(messageJson, ZegoCallMessage.class);
-                if (callMessage.target.contains(localUserInfo.userID)) {
-                    ZegoUserInfo userInfo = new ZegoUserInfo();
-                    userInfo.userID = callMessage.content.userInfo.userID;
-                    userInfo.userName = callMessage.content.userInfo.userName;
-                    if (callMessage.actionType == ZegoCallMessage.CALL) {
-                        // when received call ,we assume that user mic and camera is open
-                        ZegoCallType callType = callMessage.content.callType;
-                        if (callType == ZegoCallType.Video) {
-                            userInfo.camera = true;
-                        }
-                        userInfo.mic = true;
-                        if (listener != null) {
-                            listener.onReceiveCallInvite(userInfo, callType);
-                        }
-                    } else if (callMessage.actionType == ZegoCallMessage.CANCEL_CALL) {
-                        if (listener != null) {
-                            listener.onReceiveCallCanceled(userInfo, callMessage.content.cancelType);
+                // drop what is not for us, or what we do not act on, before decoding the content
+                int actionType = ZegoCallMessageCodec.peekAction(customMessage.message, localUserInfo.userID);
+                if (actionType != ZegoCallMessage.CALL && actionType != ZegoCallMessage.CANCEL_CALL
+                    && actionType != ZegoCallMessage.RESPONSE_CALL && actionType != ZegoCallMessage.ACK) {
+                    continue;
+                }
+                ZegoCallMessage callMessage = ZegoCallMessageCodec.decode(customMessage.message);
+                if (callMessage == null || callMessage.target == null || callMessage.content == null
+                    || callMessage.content.userInfo == null) {
+                    Log.w(TAG, "onReceivePeerMessage: malformed message from " + fromUserID);
+                    continue;
+                }
+                // acknowledged, and dropped if it is an ack or a message we already handled
+                if (!signaling.onReceive(callMessage, fromUserID)) {
+                    continue;
+                }
+                ZegoUserInfo userInfo = new ZegoUserInfo();
+                userInfo.userID = callMessage.content.userInfo.userID;
+                userInfo.userName = callMessage.content.userInfo.userName;
+                if (callMessage.actionType == ZegoCallMessage.CALL) {
+                    // when received call ,we assume that user mic and camera is open
+                    ZegoCallType callType = callMessage.content.callType;
+                    if (callType == ZegoCallType.Video) {
+                        userInfo.camera = true;
+                    }
+                    userInfo.mic = true;
+                    if (userInfo.userID != null) {
+                        // a caller that does not number its messages, or does not know we do, sends its invite again
+                        if (ringingCallers.contains(userInfo.userID) || sessions.containsKey(userInfo.userID)) {
+                            Log.d(TAG, "onReceivePeerMessage: invite from " + userInfo.userID + " sent again");
+                            continue;
                         }
-                    } else if (callMessage.actionType == ZegoCallMessage.RESPONSE_CALL) {
-                        if (listener != null) {
-                            listener.onReceiveCallResponse(userInfo, callMessage.content.responseType);
+                        startAnswerTimer(userInfo.userID);
+                        ringingCallers.add(userInfo.userID);
+                    }
+                    if (listener != null) {
+                        listener.onReceiveCallInvite(userInfo, callType);
+                    }
+                } else if (callMessage.actionType == ZegoCallMessage.CANCEL_CALL) {
+                    if (userInfo.userID != null) {
+                        cancelAnswerTimer(userInfo.userID);
+                        cancelPreJoin(userInfo.userID);
+                        // a call we accepted stops retrying to join, it completes with its last error
+                        ZegoCallSession session = sessions.get(userInfo.userID);
+                        if (session != null) {
+                            session.joinCanceled = true;
                         }
                     }
+                    if (listener != null) {
+                        listener.onReceiveCallCanceled(userInfo, callMessage.content.cancelType);
+                    }
+                } else if (callMessage.actionType == ZegoCallMessage.RESPONSE_CALL) {
+                    ZegoCallSession session = sessions.get(localUserInfo.userID);
+                    if (session != null && session.callees.containsKey(userInfo.userID)) {
+                        session.callees.put(userInfo.userID, callMessage.content.responseType);
+                        updateRingTimer(session);
+                    }
+                    if (listener != null) {
+                        listener.onReceiveCallResponse(userInfo, callMessage.content.responseType);
+                    }
                 }
             }
         }
@@ -424,11 +918,17 @@ public class ZegoUserService {
     }
 
     void onRoomMemberJoined(ZIM zim, ArrayList<ZIMUserInfo> memberList, String roomID) {
+        ZegoCallSession session = sessions.get(roomID);
+        if (session == null) {
+            return;
+        }
+        List<ZegoUserInfo> userList = session.userList;
         List<ZegoUserInfo> joinUsers = generateRoomUsers(memberList);
         Iterator<ZegoUserInfo> iterator = joinUsers.iterator();
         while (iterator.hasNext()) {
             ZegoUserInfo next = iterator.next();
             Log.d(TAG, "onRoomMemberJoined() called with: joinUser = [" + next);
+            keepAlive(session, next.userID);
             if (!userList.contains(next)) {
                 userList.add(next); // avoid duplicate
             } else {
@@ -439,14 +939,22 @@ public class ZegoUserService {
     }
 
     void onRoomMemberLeft(ZIM zim, ArrayList<ZIMUserInfo> memberList, String roomID) {
+        ZegoCallSession session = sessions.get(roomID);
+        if (session == null) {
+            return;
+        }
         List<ZegoUserInfo> leaveUsers = generateRoomUsers(memberList);
         for (ZegoUserInfo leaveUser : leaveUsers) {
-            stopPlaying(leaveUser.userID);
-            userList.remove(leaveUser);
+            stopPlaying(session, leaveUser.userID);
+            session.userList.remove(leaveUser);
+            session.callees.remove(leaveUser.userID);
+            session.cancelTimer(ZegoCallTimeoutType.HEARTBEAT, leaveUser.userID);
         }
+        updateRingTimer(session);
         Log.d(TAG, "onRoomMemberLeft: " + leaveUsers);
-        if (userList.size() <= 1 && listener != null) {
-            // only self left
+        if (session == currentSession && session.userList.size() <= 1 && !session.hasActiveCallees()
+            && listener != null) {
+            // only self left, and no callee is still coming
             listener.onReceiveCallEnded();
         }
     }
@@ -463,12 +971,231 @@ public class ZegoUserService {
         return roomUsers;
     }
 
-    private String getStreamIDFromUser(String userID) {
-        String roomID = roomService.roomInfo.roomID;
-        return String.format("%s_%s_%s", roomID, userID, "main");
+    /**
+     * A join of the room of a caller made while the call is ringing.
+     */
+    private final class PreJoin {
+
+        private final ZegoCallSession session;
+        // the error code of the join, null while it is in flight
+        private Integer errorCode;
+        // the accept waiting for the join, if the call was accepted before the join completed
+        private ZegoRoomCallback onJoined;
+
+        PreJoin(ZegoCallSession session) {
+            this.session = session;
+        }
+
+        void complete(int errorCode) {
+            this.errorCode = errorCode;
+            Log.d(TAG, "preJoinRoom: roomID = [" + session.getRoomID() + "], errorCode = [" + errorCode + "]");
+            if (onJoined != null) {
+                onJoined.onRoomCallback(errorCode);
+            }
+        }
+    }
+
+    /**
+     * An outbound call that creates the room and sends the invite at once. Both complete on the main thread, in any
+     * order, and the call is set up or rolled back once both did.
+     */
+    private final class FastDial {
+
+        private final ZegoCallSession session;
+        private final List<String> userIDs;
+        private final ZegoRoomCallback callback;
+        private final ZegoDialTimings timings = new ZegoDialTimings();
+        private final long startTime = SystemClock.elapsedRealtime();
+        // the error codes of the two steps, null until the step completes
+        private Integer roomResult;
+        private Integer inviteResult;
+
+        FastDial(ZegoCallSession session, List<String> userIDs, ZegoRoomCallback callback) {
+            this.session = session;
+            this.userIDs = userIDs;
+            this.callback = callback;
+            timings.fastDial = true;
+        }
+
+        void start(ZegoCallType callType, String createRoomToken) {
+            lastDialTimings = timings;
+            roomService.createRoom(session, localUserInfo.userName, createRoomToken, errorCode -> {
+                roomResult = errorCode;
+                if (errorCode == ZIMErrorCode.SUCCESS.value()) {
+                    timings.roomCreated = SystemClock.elapsedRealtime() - startTime;
+                }
+                complete();
+            });
+            sendInvites(session, userIDs, callType, errorCode -> {
+                inviteResult = errorCode;
+                if (errorCode == ZIMErrorCode.SUCCESS.value()) {
+                    timings.inviteSent = SystemClock.elapsedRealtime() - startTime;
+                }
+                complete();
+            });
+        }
+
+        private void complete() {
+            if (roomResult == null || inviteResult == null) {
+                return;
+            }
+            boolean roomCreated = roomResult == ZIMErrorCode.SUCCESS.value();
+            boolean inviteSent = inviteResult == ZIMErrorCode.SUCCESS.value();
+            int errorCode;
+            if (roomCreated && inviteSent) {
+                startRingTimer(session);
+                startPublishing(session);
+                timings.publishStarted = SystemClock.elapsedRealtime() - startTime;
+                errorCode = roomResult;
+            } else {
+                // undo the step that succeeded, so the callees do not ring for a room that is not there
+                if (inviteSent) {
+                    for (String userID : session.callees.keySet()) {
+                        sendCancel(ZegoCancelType.INTENT, userID, null);
+                    }
+                }
+                if (roomCreated) {
+                    leaveSession(session, null);
+                } else {
+                    closeSession(session);
+                }
+                errorCode = roomCreated ? inviteResult : roomResult;
+            }
+            Log.d(TAG, "callUsers: " + timings + ", errorCode = [" + errorCode + "]");
+            if (callback != null) {
+                callback.onRoomCallback(errorCode);
+            }
+        }
+    }
+
+    /**
+     * Queues the calls to the listener of the app on the dispatcher, so they reach it in batches on the main thread.
+     * The updates of a user that are still pending are replaced by the latest one.
+     */
+    private final class DispatchedListener implements ZegoUserServiceListener {
+
+        @Override
+        public void onUserInfoUpdated(ZegoUserInfo userInfo) {
+            dispatcher.post("userInfo:" + userInfo.userID, () -> {
+                if (appListener != null) {
+                    appListener.onUserInfoUpdated(userInfo);
+                }
+            });
+        }
+
+        @Override
+        public void onReceiveCallInvite(ZegoUserInfo userInfo, ZegoCallType type) {
+            dispatcher.post(() -> {
+                if (appListener != null) {
+                    appListener.onReceiveCallInvite(userInfo, type);
+                }
+            });
+        }
+
+        @Override
+        public void onReceiveCallCanceled(ZegoUserInfo userInfo, ZegoCancelType cancelType) {
+            dispatcher.post(() -> {
+                if (appListener != null) {
+                    appListener.onReceiveCallCanceled(userInfo, cancelType);
+                }
+            });
+        }
+
+        @Override
+        public void onReceiveCallResponse(ZegoUserInfo userInfo, ZegoResponseType type) {
+            dispatcher.post(() -> {
+                if (appListener != null) {
+                    appListener.onReceiveCallResponse(userInfo, type);
+                }
+            });
+        }
+
+        @Override
+        public void onReceiveCallEnded() {
+            dispatcher.post(() -> {
+                if (appListener != null) {
+                    appListener.onReceiveCallEnded();
+                }
+            });
+        }
+
+        @Override
+        public void onConnectionStateChanged(ZIMConnectionState state, ZIMConnectionEvent event) {
+            dispatcher.post(() -> {
+                if (appListener != null) {
+                    appListener.onConnectionStateChanged(state, event);
+                }
+            });
+        }
+
+        @Override
+        public void onNetworkQuality(String userID, ZegoNetWorkQuality quality) {
+            dispatcher.post("networkQuality:" + userID, () -> {
+                if (appListener != null) {
+                    appListener.onNetworkQuality(userID, quality);
+                }
+            });
+        }
+
+        @Override
+        public void onRoomTokenWillExpire(int remainTimeInSecond, String roomID) {
+            dispatcher.post(() -> {
+                if (appListener != null) {
+                    appListener.onRoomTokenWillExpire(remainTimeInSecond, roomID);
+                }
+            });
+        }
+
+        @Override
+        public void onCallTimeout(ZegoCallTimeoutType type, String userID) {
+            dispatcher.post(() -> {
+                if (appListener != null) {
+                    appListener.onCallTimeout(type, userID);
+                }
+            });
+        }
+    }
+
+    /**
+     * The results of sending one message to several peers.
+     */
+    private static final class FanOut {
+
+        private int remaining;
+        private boolean delivered;
+        private int errorCode;
+
+        FanOut(int count) {
+            this.remaining = count;
+        }
+
+        /**
+         * @return whether this was the last send to complete.
+         */
+        boolean onSent(int errorCode) {
+            if (errorCode == ZIMErrorCode.SUCCESS.value()) {
+                delivered = true;
+            } else {
+                this.errorCode = errorCode;
+            }
+            return --remaining == 0;
+        }
+
+        /**
+         * @return success if any peer received the message, the last error otherwise.
+         */
+        int getErrorCode() {
+            return delivered ? ZIMErrorCode.SUCCESS.value() : errorCode;
+        }
     }
 
     void onRoomAttributesUpdated(ZIM zim, ZIMRoomAttributesUpdateInfo info, String roomID) {
+        ZegoCallSession session = sessions.get(roomID);
+        if (session == null) {
+            return;
+        }
+        // the states are kept for every session, only those of the current call are reported
+        ZegoUserServiceListener listener = session == currentSession ? this.listener : null;
         HashMap<String, String> roomAttributes = info.roomAttributes;
         Log.d(TAG,
             "onRoomAttributesUpdated() called with: zim = [" + zim + "], roomAttributes = [" + roomAttributes + "]");
@@ -479,13 +1206,13 @@ public class ZegoUserService {
                 String value = entry.getValue();
                 if (Objects.equals(key, ZegoRoomService.KEY_ROOM_INFO)) {
                     ZegoRoomInfo roomInfo = mGson.fromJson(roomAttributes.get(key), ZegoRoomInfo.class);
-                    roomService.updateRoomInfo(roomInfo);
+                    session.roomInfo = roomInfo;
                     if (roomInfo == null && listener != null) {
                         listener.onReceiveCallEnded();
                     }
                 } else {
                     ZegoUserInfo attrUserInfo = mGson.fromJson(value, ZegoUserInfo.class);
-                    for (ZegoUserInfo userInfo : userList) {
+                    for (ZegoUserInfo userInfo : session.userList) {
                         if (Objects.equals(userInfo.userID, localUserInfo.userID)) {
                             // skip self
                             continue;
@@ -537,17 +1264,21 @@ public class ZegoUserService {
         if (Objects.equals(localUserInfo.userID, userID)) {
             ZegoExpressEngine.getEngine().setAppOrientation(ZegoOrientation.ORIENTATION_0);
             ZegoExpressEngine.getEngine().startPreview(zegoCanvas);
-        } else {
-            ZegoExpressEngine.getEngine().startPlayingStream(getStreamIDFromUser(userID), zegoCanvas);
+        } else if (currentSession != null) {
+            String streamID = currentSession.getStreamID(userID);
+            currentSession.streamMap.put(userID, streamID);
+            ZegoExpressEngine.getEngine().startPlayingStream(streamID, zegoCanvas);
         }
     }
 
-    private void stopPlaying(String userID) {
+    private void stopPlaying(ZegoCallSession session, String userID) {
         if (Objects.equals(localUserInfo.userID, userID)) {
             ZegoExpressEngine.getEngine().stopPreview();
         } else {
-            String streamID = streamMap.get(userID);
-            ZegoExpressEngine.getEngine().stopPlayingStream(streamID);
+            String streamID = session.streamMap.remove(userID);
+            if (streamID != null) {
+                ZegoExpressEngine.getEngine().stopPlayingStream(streamID);
+            }
         }
     }
 
@@ -568,10 +1299,12 @@ public class ZegoUserService {
     public void onRoomStateChanged(ZIM zim, ZIMRoomState state, ZIMRoomEvent event, JSONObject extendedData,
         String roomID) {
         // not user call leave api
-        if (event != ZIMRoomEvent.SUCCESS) {
+        ZegoCallSession session = sessions.get(roomID);
+        if (event != ZIMRoomEvent.SUCCESS && session != null) {
             if (state == ZIMRoomState.DISCONNECTED) {
-                roomService.leaveRoom(null);
-                if (listener != null) {
+                boolean current = session == currentSession;
+                leaveSession(session, null);
+                if (current && listener != null) {
                     listener.onReceiveCallEnded();
                 }
             }
@@ -602,6 +1335,44 @@ public class ZegoUserService {
         }
     }
 
+    void onRoomStreamUpdate(String roomID, ZegoUpdateType updateType, List<ZegoStream> streamList) {
+        ZegoCallSession session = sessions.get(roomID);
+        if (session == null || updateType != ZegoUpdateType.ADD) {
+            // a stream deleted without its user leaving the room lets the heartbeat of the user run out
+            return;
+        }
+        for (ZegoStream stream : streamList) {
+            if (stream.user != null) {
+                keepAlive(session, stream.user.userID);
+            }
+        }
+    }
+
+    void onPlayerQualityUpdate(String streamID) {
+        // reported every few seconds for each stream played, the media of the peer still arrives
+        ZegoCallSession session = currentSession;
+        if (session == null) {
+            return;
+        }
+        for (Entry<String, String> entry : session.streamMap.entrySet()) {
+            if (entry.getValue().equals(streamID)) {
+                keepAlive(session, entry.getKey());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Restart the heartbeat of a peer in the call, it was just seen in the room or in the streams it publishes.
+     */
+    private void keepAlive(ZegoCallSession session, String userID) {
+        if (userID == null || userID.isEmpty() || localUserInfo == null || userID.equals(localUserInfo.userID)) {
+            return;
+        }
+        session.startTimer(ZegoCallTimeoutType.HEARTBEAT, userID, getCallTimeout(ZegoCallTimeoutType.HEARTBEAT),
+            () -> onCallTimeout(session, ZegoCallTimeoutType.HEARTBEAT, userID));
+    }
+
     /**
      * Renew token.
      * <p>
@@ -619,8 +1390,23 @@ public class ZegoUserService {
         });
     }
 
+    /**
+     * Renew room token.
+     * <p>
+     * Description: After the developer receives [onRoomTokenWillExpire] during a call, they can use this API to update
+     * the RTC token of the room of the call, the token it joined with is not the token of the user.
+     * <p>
+     * Call this method at: After joining a room
+     *
+     * @param roomToken The RTC token of the local user in the room.
+     * @param roomID    Room ID.
+     */
+    public void renewRoomToken(String roomToken, String roomID) {
+        ZegoExpressEngine.getEngine().renewToken(roomID, roomToken);
+    }
+
     public ZegoRoomInfo getRoomInfo() {
-        return roomService.roomInfo;
+        return currentSession == null ? null : currentSession.getRoomInfo();
     }
 
     public void onRoomTokenWillExpire(int remainTimeInSecond, String roomID) {
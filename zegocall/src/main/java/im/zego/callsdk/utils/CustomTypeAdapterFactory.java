@@ -8,14 +8,19 @@ import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonToken;
 import com.google.gson.stream.JsonWriter;
 import java.io.IOException;
+import java.lang.reflect.Array;
 import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * if enum class construct with int value ,and need to
  * serialized to int,use this.
+ * <p>
+ * The int field of an enum is read by reflection once, the first time the enum is adapted. The adapter then writes the
+ * value by ordinal and reads it back from a dense value-indexed array, and is shared by every Gson instance.
  */
 public class CustomTypeAdapterFactory implements TypeAdapterFactory {
 
@@ -25,82 +30,145 @@ public class CustomTypeAdapterFactory implements TypeAdapterFactory {
     public static final String LONG = "long";
     public static final String BOOLEAN = "boolean";
 
+    // beyond this range of values, the constants are looked up in a map instead of an array
+    private static final int MAX_DENSE_RANGE = 1024;
+
+    // a ConcurrentHashMap, so putIfAbsent is its own method rather than the Map default that Android lacks before 24
+    private static final ConcurrentHashMap<Class<?>, IntEnumAdapter<?>> adapters = new ConcurrentHashMap<>();
+
     @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
     public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
-        Class<T> rawType = (Class<T>) type.getRawType();
-        if (rawType.isEnum()) {
-            Map<T, TypeAndValue> map = new HashMap<>();
-            for (T enumConstant : rawType.getEnumConstants()) {
-                if (enumConstant == null) {
-                    continue;
-                }
-                for (Field field : enumConstant.getClass().getDeclaredFields()) {
-                    if (INT.equals(field.getType().getName())) {
-                        field.setAccessible(true);
-                        try {
-                            int intValue = field.getInt(enumConstant);
-                            TypeAndValue data = new TypeAndValue(INT, intValue);
-                            map.put(enumConstant, data);
-                        } catch (IllegalAccessException e) {
-                            e.printStackTrace();
-                        }
-                    }
+        Class<? super T> rawType = type.getRawType();
+        if (!Enum.class.isAssignableFrom(rawType) || rawType == Enum.class) {
+            return null;
+        }
+        if (!rawType.isEnum()) {
+            // the class of a constant with a body
+            rawType = rawType.getSuperclass();
+        }
+        IntEnumAdapter<?> adapter = adapters.get(rawType);
+        if (adapter == null) {
+            adapter = IntEnumAdapter.create((Class<? extends Enum>) rawType);
+            if (adapter == null) {
+                // no int value, leave the enum to the default adapter of Gson
+                return null;
+            }
+            IntEnumAdapter<?> existing = adapters.putIfAbsent(rawType, adapter);
+            if (existing != null) {
+                adapter = existing;
+            }
+        }
+        return (TypeAdapter<T>) adapter;
+    }
+
+    private static final class IntEnumAdapter<T extends Enum<T>> extends TypeAdapter<T> {
+
+        // the int value of each constant, by ordinal
+        private final int[] values;
+        // the constant of each value, at index value - minValue, null when the values are too sparse
+        private final T[] constants;
+        private final int minValue;
+        private final Map<Integer, T> sparseConstants;
+
+        private IntEnumAdapter(int[] values, T[] constants, int minValue, Map<Integer, T> sparseConstants) {
+            this.values = values;
+            this.constants = constants;
+            this.minValue = minValue;
+            this.sparseConstants = sparseConstants;
+        }
+
+        @SuppressWarnings("unchecked")
+        static <T extends Enum<T>> IntEnumAdapter<T> create(Class<T> enumType) {
+            Field valueField = null;
+            for (Field field : enumType.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers()) && INT.equals(field.getType().getName())) {
+                    valueField = field;
+                    break;
                 }
             }
-            return new TypeAdapter<T>() {
-                public void write(JsonWriter out, T value) throws IOException {
-                    if (value == null) {
-                        out.nullValue();
-                    } else {
-                        TypeAndValue typeAndValue = map.get(value);
-                        if (INT.equals(typeAndValue.type)) {
-                            out.value((int) typeAndValue.value);
-                        }
-                    }
+            if (valueField == null) {
+                return null;
+            }
+            valueField.setAccessible(true);
+
+            T[] enumConstants = enumType.getEnumConstants();
+            int[] values = new int[enumConstants.length];
+            int minValue = Integer.MAX_VALUE;
+            int maxValue = Integer.MIN_VALUE;
+            try {
+                for (T enumConstant : enumConstants) {
+                    int value = valueField.getInt(enumConstant);
+                    values[enumConstant.ordinal()] = value;
+                    minValue = Math.min(minValue, value);
+                    maxValue = Math.max(maxValue, value);
                 }
+            } catch (IllegalAccessException e) {
+                e.printStackTrace();
+                return null;
+            }
 
-                public T read(JsonReader reader) throws IOException {
-                    if (reader.peek() == JsonToken.NULL) {
-                        reader.nextNull();
-                    } else {
-                        T enumConstant = null;
-                        String string = reader.nextString();
-                        for (Entry<T, TypeAndValue> entry : map.entrySet()) {
-                            T key = entry.getKey();
-                            TypeAndValue typeAndValue = entry.getValue();
-                            if (typeAndValue.value.toString().equals(string)) {
-                                enumConstant = key;
-                                break;
-                            }
-                        }
-                        return enumConstant;
-                    }
-                    return null;
+            if (enumConstants.length == 0) {
+                return new IntEnumAdapter<>(values, enumConstants, 0, null);
+            }
+            if ((long) maxValue - minValue < MAX_DENSE_RANGE) {
+                T[] constants = (T[]) Array.newInstance(enumType, maxValue - minValue + 1);
+                // iterate backwards so that the first declared constant wins a duplicated value
+                for (int i = enumConstants.length - 1; i >= 0; i--) {
+                    constants[values[i] - minValue] = enumConstants[i];
                 }
-            };
-        } else {
-            return null;
+                return new IntEnumAdapter<>(values, constants, minValue, null);
+            }
+            Map<Integer, T> sparseConstants = new HashMap<>();
+            for (int i = enumConstants.length - 1; i >= 0; i--) {
+                sparseConstants.put(values[i], enumConstants[i]);
+            }
+            return new IntEnumAdapter<>(values, null, 0, sparseConstants);
         }
-    }
 
-    static class TypeAndValue {
-
-        // INT,STRING,LONG,etc.
-        public String type;
-        // enum's field's value
-        public Object value;
-
-        public TypeAndValue(String type, Object value) {
-            this.type = type;
-            this.value = value;
+        @Override
+        public void write(JsonWriter out, T value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+            } else {
+                out.value(values[value.ordinal()]);
+            }
         }
 
         @Override
-        public String toString() {
-            return "TypeAndValue{" +
-                "type='" + type + '\'' +
-                ", value=" + value +
-                '}';
+        public T read(JsonReader reader) throws IOException {
+            JsonToken token = reader.peek();
+            if (token == JsonToken.NULL) {
+                reader.nextNull();
+                return null;
+            }
+            int value;
+            if (token == JsonToken.NUMBER) {
+                try {
+                    value = reader.nextInt();
+                } catch (NumberFormatException e) {
+                    // not an int, such as 1.5
+                    reader.skipValue();
+                    return null;
+                }
+            } else {
+                // a quoted value, unknown ones read as null
+                String string = reader.nextString();
+                try {
+                    value = Integer.parseInt(string);
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            }
+            return constantOf(value);
+        }
+
+        private T constantOf(int value) {
+            if (constants == null) {
+                return sparseConstants == null ? null : sparseConstants.get(value);
+            }
+            int index = value - minValue;
+            return index >= 0 && index < constants.length ? constants[index] : null;
         }
     }
 }
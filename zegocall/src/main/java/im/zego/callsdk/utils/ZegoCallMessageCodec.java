@@ -0,0 +1,1284 @@
+package im.zego.callsdk.utils;
+
+import im.zego.callsdk.model.ZegoCallMessage;
+import im.zego.callsdk.model.ZegoCallMessage.ContentBean;
+import im.zego.callsdk.model.ZegoCallMessage.UserInfoBean;
+import im.zego.callsdk.model.ZegoCallType;
+import im.zego.callsdk.model.ZegoCancelType;
+import im.zego.callsdk.model.ZegoResponseType;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Class call message codec.
+ * <p>
+ * Description: This class writes a {@link ZegoCallMessage} as UTF-8 JSON straight into the byte array sent as the
+ * ZIM custom message, and parses it back from the received bytes without building a String of the whole message or
+ * reflecting over the model. The output is byte for byte what the Gson of ZegoCodecRegistry writes, null fields left
+ * out and HTML characters escaped, so both ends can be mixed. Unknown fields are skipped when parsing.
+ * <p>
+ * A message can also be written in a compact binary form, for the peers that advertised they read it through the
+ * {@code wire_version} field of their JSON messages. It starts with a header byte, {@code 0xc0 | version}, which can
+ * start neither a JSON text nor any UTF-8 text, so {@link #decode} tells both forms apart from the first byte. After
+ * the header come the action type as a varint, a byte of flags for the fields present, the targets as a varint count
+ * of strings, then the user info strings and the enum values as varints. A string is the varint of its UTF-8 length
+ * plus one, 0 for null, followed by its UTF-8 bytes. Ints are zigzag encoded. Version 2 adds the seq, as a varint of
+ * 64 bits after the enum values, and a peer that advertised version 1 is still written version 1, without it.
+ */
+public final class ZegoCallMessageCodec {
+
+    private static final byte[] ACTION_TYPE = key("action_type");
+    private static final byte[] TARGET = key("target");
+    private static final byte[] CONTENT = key("content");
+    private static final byte[] USER_INFO = key("user_info");
+    private static final byte[] RESPONSE_TYPE = key("response_type");
+    private static final byte[] CALL_TYPE = key("call_type");
+    private static final byte[] CANCEL_TYPE = key("cancel_type");
+    private static final byte[] ID = key("id");
+    private static final byte[] NAME = key("name");
+    private static final byte[] SEQ = key("seq");
+    private static final byte[] WIRE_VERSION_KEY = key("wire_version");
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+
+    // an enum field that is null, or has a value that is not an int
+    private static final int NO_VALUE = Integer.MIN_VALUE;
+    private static final long NO_LONG_VALUE = Long.MIN_VALUE;
+
+    /**
+     * The version of the binary form written by this codec, also the newest one it reads.
+     */
+    public static final int WIRE_VERSION = 2;
+
+    /**
+     * The first wire version whose peers number their messages and acknowledge the numbered messages they receive.
+     */
+    public static final int SEQ_WIRE_VERSION = 2;
+
+    /**
+     * Passed to the {@link Template} for a message that is not numbered.
+     */
+    public static final long NO_SEQ = -1;
+
+    /**
+     * Returned by {@link #peekAction} for a message that is not addressed to the user, or is malformed.
+     */
+    public static final int NOT_ADDRESSED = 0;
+
+    private static final int BINARY_HEADER = 0xc0;
+    private static final int BINARY_HEADER_MASK = 0xf0;
+    private static final int FLAG_TARGET = 1;
+    private static final int FLAG_CONTENT = 1 << 1;
+    private static final int FLAG_USER_INFO = 1 << 2;
+    private static final int FLAG_RESPONSE_TYPE = 1 << 3;
+    private static final int FLAG_CALL_TYPE = 1 << 4;
+    private static final int FLAG_CANCEL_TYPE = 1 << 5;
+    private static final int FLAG_SEQ = 1 << 6;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final ZegoCallType[] CALL_TYPES = ZegoCallType.values();
+    private static final ZegoCancelType[] CANCEL_TYPES = ZegoCancelType.values();
+    private static final ZegoResponseType[] RESPONSE_TYPES = ZegoResponseType.values();
+
+    private static final ThreadLocal<Writer> threadWriter = new ThreadLocal<Writer>() {
+        @Override
+        protected Writer initialValue() {
+            return new Writer();
+        }
+    };
+
+    private ZegoCallMessageCodec() {
+    }
+
+    /**
+     * Encode a call message.
+     *
+     * @param message the message to encode.
+     * @return the UTF-8 JSON bytes, ready to be the payload of a ZIM custom message.
+     */
+    public static byte[] encode(ZegoCallMessage message) {
+        Writer writer = threadWriter.get();
+        writer.reset();
+        writer.raw('{').raw(ACTION_TYPE).integer(message.actionType);
+        if (message.target != null) {
+            writer.raw(',').raw(TARGET).raw('[');
+            for (int i = 0; i < message.target.size(); i++) {
+                if (i > 0) {
+                    writer.raw(',');
+                }
+                writer.string(message.target.get(i));
+            }
+            writer.raw(']');
+        }
+        ContentBean content = message.content;
+        if (content != null) {
+            writer.raw(',').raw(CONTENT).raw('{');
+            boolean first = true;
+            if (content.userInfo != null) {
+                first = false;
+                writer.raw(USER_INFO).raw('{');
+                boolean firstUserField = true;
+                if (content.userInfo.userID != null) {
+                    firstUserField = false;
+                    writer.raw(ID).string(content.userInfo.userID);
+                }
+                if (content.userInfo.userName != null) {
+                    writer.comma(firstUserField).raw(NAME).string(content.userInfo.userName);
+                }
+                writer.raw('}');
+            }
+            if (content.responseType != null) {
+                writer.comma(first).raw(RESPONSE_TYPE).integer(content.responseType.getValue());
+                first = false;
+            }
+            if (content.callType != null) {
+                writer.comma(first).raw(CALL_TYPE).integer(content.callType.getValue());
+                first = false;
+            }
+            if (content.cancelType != null) {
+                writer.comma(first).raw(CANCEL_TYPE).integer(content.cancelType.getValue());
+            }
+            writer.raw('}');
+        }
+        if (message.seq != null) {
+            writer.raw(',').raw(SEQ).integer(message.seq);
+        }
+        if (message.wireVersion != null) {
+            writer.raw(',').raw(WIRE_VERSION_KEY).integer(message.wireVersion);
+        }
+        writer.raw('}');
+        return writer.toByteArray();
+    }
+
+    /**
+     * Encode a call message in the form a peer reads.
+     *
+     * @param message          the message to encode.
+     * @param peerWireVersion  the wire version the peer advertised, 0 if it did not.
+     * @return the binary bytes if the peer reads them, the JSON bytes otherwise.
+     */
+    public static byte[] encode(ZegoCallMessage message, int peerWireVersion) {
+        return peerWireVersion >= 1 ? encodeBinary(message, Math.min(peerWireVersion, WIRE_VERSION)) : encode(message);
+    }
+
+    /**
+     * Encode a call message in the binary form. The wire version of the message is not written, the header carries
+     * it.
+     *
+     * @param message the message to encode.
+     * @return the binary bytes, only for the peers that advertised {@link #WIRE_VERSION} or above.
+     */
+    public static byte[] encodeBinary(ZegoCallMessage message) {
+        return encodeBinary(message, WIRE_VERSION);
+    }
+
+    private static byte[] encodeBinary(ZegoCallMessage message, int version) {
+        Writer writer = threadWriter.get();
+        writer.reset();
+        ContentBean content = message.content;
+        int flags = 0;
+        if (message.target != null) {
+            flags |= FLAG_TARGET;
+        }
+        if (content != null) {
+            flags |= FLAG_CONTENT;
+            if (content.userInfo != null) {
+                flags |= FLAG_USER_INFO;
+            }
+            if (content.responseType != null) {
+                flags |= FLAG_RESPONSE_TYPE;
+            }
+            if (content.callType != null) {
+                flags |= FLAG_CALL_TYPE;
+            }
+            if (content.cancelType != null) {
+                flags |= FLAG_CANCEL_TYPE;
+            }
+        }
+        boolean writeSeq = message.seq != null && version >= SEQ_WIRE_VERSION;
+        if (writeSeq) {
+            flags |= FLAG_SEQ;
+        }
+        writer.raw((char) (BINARY_HEADER | version)).varint(zigzag(message.actionType)).raw((char) flags);
+        if (message.target != null) {
+            writer.varint(message.target.size());
+            for (int i = 0; i < message.target.size(); i++) {
+                writer.utf8(message.target.get(i));
+            }
+        }
+        if (content != null) {
+            if (content.userInfo != null) {
+                writer.utf8(content.userInfo.userID).utf8(content.userInfo.userName);
+            }
+            if (content.responseType != null) {
+                writer.varint(zigzag(content.responseType.getValue()));
+            }
+            if (content.callType != null) {
+                writer.varint(zigzag(content.callType.getValue()));
+            }
+            if (content.cancelType != null) {
+                writer.varint(zigzag(content.cancelType.getValue()));
+            }
+        }
+        if (writeSeq) {
+            writer.varlong(message.seq);
+        }
+        return writer.toByteArray();
+    }
+
+    /**
+     * Decode a call message, in either form.
+     *
+     * @param bytes the bytes of a ZIM custom message.
+     * @return the message, null if the bytes are neither a JSON object nor a binary message of a known version.
+     */
+    public static ZegoCallMessage decode(byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        try {
+            if (bytes.length > 0 && (bytes[0] & BINARY_HEADER_MASK) == BINARY_HEADER) {
+                return new BinaryReader(bytes).readMessage();
+            }
+            return new Reader(bytes).readMessage();
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Read the action type of a message if it is addressed to a user, without decoding its content. The content of a
+     * JSON message is skipped over, the content of a binary message is not read at all.
+     *
+     * @param bytes  the bytes of a ZIM custom message, in either form.
+     * @param userID the user the message has to target.
+     * @return the action type, {@link #NOT_ADDRESSED} if the user is not in the targets or the bytes are malformed.
+     */
+    public static int peekAction(byte[] bytes, String userID) {
+        if (bytes == null || userID == null) {
+            return NOT_ADDRESSED;
+        }
+        byte[] userIDBytes = userID.getBytes(StandardCharsets.UTF_8);
+        try {
+            if (bytes.length > 0 && (bytes[0] & BINARY_HEADER_MASK) == BINARY_HEADER) {
+                return new BinaryReader(bytes).peekAction(userIDBytes);
+            }
+            return new Reader(bytes).peekAction(userID, userIDBytes);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            return NOT_ADDRESSED;
+        }
+    }
+
+    private static byte[] key(String name) {
+        return ("\"" + name + "\":").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int zigzag(int value) {
+        return value << 1 ^ value >> 31;
+    }
+
+    private static int unzigzag(int value) {
+        return value >>> 1 ^ -(value & 1);
+    }
+
+    private static ZegoCallType callTypeOf(int value) {
+        for (ZegoCallType type : CALL_TYPES) {
+            if (type.getValue() == value) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    private static ZegoCancelType cancelTypeOf(int value) {
+        for (ZegoCancelType type : CANCEL_TYPES) {
+            if (type.getValue() == value) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    private static ZegoResponseType responseTypeOf(int value) {
+        for (ZegoResponseType type : RESPONSE_TYPES) {
+            if (type.getValue() == value) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The messages a local user sends, with the parts that do not change from one message to the next encoded once.
+     * <p>
+     * Description: A template keeps the user info of the local user encoded in both forms. Encoding a message only
+     * writes the action, the target, the enum value and the seq around it, into the buffer of the thread. The output is
+     * the same as {@link #encode(ZegoCallMessage, int)} of the whole message, with the wire version advertised.
+     */
+    public static final class Template {
+
+        private final String userID;
+        private final String userName;
+        // "user_info":{...}
+        private final byte[] jsonUserInfo;
+        // the user ID and name, as strings of the binary form
+        private final byte[] binaryUserInfo;
+
+        public Template(String userID, String userName) {
+            this.userID = userID;
+            this.userName = userName;
+            Writer writer = new Writer();
+            writer.raw(USER_INFO).raw('{');
+            if (userID != null) {
+                writer.raw(ID).string(userID);
+            }
+            if (userName != null) {
+                writer.comma(userID == null).raw(NAME).string(userName);
+            }
+            writer.raw('}');
+            jsonUserInfo = writer.toByteArray();
+            writer.reset();
+            writer.utf8(userID).utf8(userName);
+            binaryUserInfo = writer.toByteArray();
+        }
+
+        /**
+         * @return whether the template was made for this user, and can still be used for it.
+         */
+        public boolean isFor(String userID, String userName) {
+            return equals(this.userID, userID) && equals(this.userName, userName);
+        }
+
+        public byte[] call(String target, ZegoCallType callType, int peerWireVersion) {
+            return call(Collections.singletonList(target), callType, NO_SEQ, peerWireVersion);
+        }
+
+        public byte[] call(List<String> targets, ZegoCallType callType, int peerWireVersion) {
+            return call(targets, callType, NO_SEQ, peerWireVersion);
+        }
+
+        /**
+         * @param targets         refers to every callee, the same invite is sent to each of them.
+         * @param seq             refers to the sequence number of the message, {@link #NO_SEQ} if it is not numbered.
+         * @param peerWireVersion refers to the lowest wire version the callees advertised.
+         */
+        public byte[] call(List<String> targets, ZegoCallType callType, long seq, int peerWireVersion) {
+            return encode(ZegoCallMessage.CALL, targets, CALL_TYPE, FLAG_CALL_TYPE,
+                callType == null ? NO_VALUE : callType.getValue(), seq, peerWireVersion);
+        }
+
+        public byte[] cancel(String target, ZegoCancelType cancelType, int peerWireVersion) {
+            return cancel(target, cancelType, NO_SEQ, peerWireVersion);
+        }
+
+        public byte[] cancel(String target, ZegoCancelType cancelType, long seq, int peerWireVersion) {
+            return encode(ZegoCallMessage.CANCEL_CALL, Collections.singletonList(target), CANCEL_TYPE,
+                FLAG_CANCEL_TYPE, cancelType == null ? NO_VALUE : cancelType.getValue(), seq, peerWireVersion);
+        }
+
+        public byte[] response(String target, ZegoResponseType responseType, int peerWireVersion) {
+            return response(target, responseType, NO_SEQ, peerWireVersion);
+        }
+
+        public byte[] response(String target, ZegoResponseType responseType, long seq, int peerWireVersion) {
+            return encode(ZegoCallMessage.RESPONSE_CALL, Collections.singletonList(target), RESPONSE_TYPE,
+                FLAG_RESPONSE_TYPE, responseType == null ? NO_VALUE : responseType.getValue(), seq, peerWireVersion);
+        }
+
+        /**
+         * @param seq refers to the sequence number of the message received from the target.
+         */
+        public byte[] ack(String target, long seq, int peerWireVersion) {
+            return encode(ZegoCallMessage.ACK, Collections.singletonList(target), null, 0, NO_VALUE, seq,
+                peerWireVersion);
+        }
+
+        private byte[] encode(int actionType, List<String> targets, byte[] enumKey, int enumFlag, int enumValue,
+            long seq, int peerWireVersion) {
+            Writer writer = threadWriter.get();
+            writer.reset();
+            if (peerWireVersion >= 1) {
+                int version = Math.min(peerWireVersion, WIRE_VERSION);
+                boolean writeSeq = seq != NO_SEQ && version >= SEQ_WIRE_VERSION;
+                int flags = FLAG_TARGET | FLAG_CONTENT | FLAG_USER_INFO;
+                if (enumValue != NO_VALUE) {
+                    flags |= enumFlag;
+                }
+                if (writeSeq) {
+                    flags |= FLAG_SEQ;
+                }
+                writer.raw((char) (BINARY_HEADER | version)).varint(zigzag(actionType)).raw((char) flags)
+                    .varint(targets.size());
+                for (int i = 0; i < targets.size(); i++) {
+                    writer.utf8(targets.get(i));
+                }
+                writer.raw(binaryUserInfo);
+                if (enumValue != NO_VALUE) {
+                    writer.varint(zigzag(enumValue));
+                }
+                if (writeSeq) {
+                    writer.varlong(seq);
+                }
+            } else {
+                writer.raw('{').raw(ACTION_TYPE).integer(actionType).raw(',').raw(TARGET).raw('[');
+                for (int i = 0; i < targets.size(); i++) {
+                    writer.comma(i == 0).string(targets.get(i));
+                }
+                writer.raw(']').raw(',').raw(CONTENT).raw('{').raw(jsonUserInfo);
+                if (enumValue != NO_VALUE) {
+                    writer.raw(',').raw(enumKey).integer(enumValue);
+                }
+                writer.raw('}');
+                if (seq != NO_SEQ) {
+                    writer.raw(',').raw(SEQ).integer(seq);
+                }
+                writer.raw(',').raw(WIRE_VERSION_KEY).integer(WIRE_VERSION).raw('}');
+            }
+            return writer.toByteArray();
+        }
+
+        private static boolean equals(String a, String b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
+
+    /**
+     * Writes a message, in either form, into a buffer reused by the thread.
+     */
+    private static final class Writer {
+
+        private byte[] buffer = new byte[256];
+        private int size;
+
+        void reset() {
+            size = 0;
+        }
+
+        Writer raw(char c) {
+            ensure(1);
+            buffer[size++] = (byte) c;
+            return this;
+        }
+
+        Writer raw(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, size, bytes.length);
+            size += bytes.length;
+            return this;
+        }
+
+        Writer comma(boolean first) {
+            return first ? this : raw(',');
+        }
+
+        Writer integer(long value) {
+            if (value < 0) {
+                if (value == Long.MIN_VALUE) {
+                    return raw(Long.toString(value).getBytes(StandardCharsets.US_ASCII));
+                }
+                raw('-');
+                value = -value;
+            }
+            int digits = 1;
+            for (long v = value; v >= 10; v /= 10) {
+                digits++;
+            }
+            ensure(digits);
+            for (int i = size + digits - 1; i >= size; i--) {
+                buffer[i] = (byte) ('0' + value % 10);
+                value /= 10;
+            }
+            size += digits;
+            return this;
+        }
+
+        /**
+         * Write a quoted string, escaped as Gson escapes it by default.
+         */
+        Writer string(String value) {
+            if (value == null) {
+                return raw(NULL);
+            }
+            int length = value.length();
+            // worst case: every char escaped as \\uXXXX
+            ensure(length * 6 + 2);
+            byte[] buffer = this.buffer;
+            int pos = size;
+            buffer[pos++] = '"';
+            for (int i = 0; i < length; i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    switch (c) {
+                        case '"':
+                        case '\\':
+                            buffer[pos++] = '\\';
+                            buffer[pos++] = (byte) c;
+                            break;
+                        case '\t':
+                            buffer[pos++] = '\\';
+                            buffer[pos++] = 't';
+                            break;
+                        case '\b':
+                            buffer[pos++] = '\\';
+                            buffer[pos++] = 'b';
+                            break;
+                        case '\n':
+                            buffer[pos++] = '\\';
+                            buffer[pos++] = 'n';
+                            break;
+                        case '\r':
+                            buffer[pos++] = '\\';
+                            buffer[pos++] = 'r';
+                            break;
+                        case '\f':
+                            buffer[pos++] = '\\';
+                            buffer[pos++] = 'f';
+                            break;
+                        case '<':
+                        case '>':
+                        case '&':
+                        case '=':
+                        case '\'':
+                            pos = unicodeEscape(buffer, pos, c);
+                            break;
+                        default:
+                            if (c < 0x20) {
+                                pos = unicodeEscape(buffer, pos, c);
+                            } else {
+                                buffer[pos++] = (byte) c;
+                            }
+                            break;
+                    }
+                } else if (c < 0x800) {
+                    buffer[pos++] = (byte) (0xc0 | c >> 6);
+                    buffer[pos++] = (byte) (0x80 | c & 0x3f);
+                } else if (c == 0x2028 || c == 0x2029) {
+                    pos = unicodeEscape(buffer, pos, c);
+                } else if (Character.isSurrogate(c)) {
+                    char low = i + 1 < length ? value.charAt(i + 1) : 0;
+                    if (Character.isHighSurrogate(c) && Character.isLowSurrogate(low)) {
+                        int codePoint = Character.toCodePoint(c, low);
+                        buffer[pos++] = (byte) (0xf0 | codePoint >> 18);
+                        buffer[pos++] = (byte) (0x80 | codePoint >> 12 & 0x3f);
+                        buffer[pos++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+                        buffer[pos++] = (byte) (0x80 | codePoint & 0x3f);
+                        i++;
+                    } else {
+                        // an unpaired surrogate, replaced as String.getBytes does
+                        buffer[pos++] = '?';
+                    }
+                } else {
+                    buffer[pos++] = (byte) (0xe0 | c >> 12);
+                    buffer[pos++] = (byte) (0x80 | c >> 6 & 0x3f);
+                    buffer[pos++] = (byte) (0x80 | c & 0x3f);
+                }
+            }
+            buffer[pos++] = '"';
+            size = pos;
+            return this;
+        }
+
+        /**
+         * Write an unsigned varint, 7 bits a byte, low bits first.
+         */
+        Writer varint(int value) {
+            ensure(5);
+            while ((value & ~0x7f) != 0) {
+                buffer[size++] = (byte) (value & 0x7f | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+            return this;
+        }
+
+        /**
+         * Write an unsigned varint of 64 bits.
+         */
+        Writer varlong(long value) {
+            ensure(10);
+            while ((value & ~0x7fL) != 0) {
+                buffer[size++] = (byte) (value & 0x7f | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+            return this;
+        }
+
+        /**
+         * Write a string of the binary form: the varint of its UTF-8 length plus one, 0 for null, then its bytes.
+         */
+        Writer utf8(String value) {
+            if (value == null) {
+                return varint(0);
+            }
+            int length = value.length();
+            int utf8Length = 0;
+            for (int i = 0; i < length; i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    utf8Length++;
+                } else if (c < 0x800) {
+                    utf8Length += 2;
+                } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    utf8Length += 4;
+                    i++;
+                } else if (Character.isSurrogate(c)) {
+                    utf8Length++;
+                } else {
+                    utf8Length += 3;
+                }
+            }
+            varint(utf8Length + 1);
+            ensure(utf8Length);
+            byte[] buffer = this.buffer;
+            int pos = size;
+            for (int i = 0; i < length; i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    buffer[pos++] = (byte) c;
+                } else if (c < 0x800) {
+                    buffer[pos++] = (byte) (0xc0 | c >> 6);
+                    buffer[pos++] = (byte) (0x80 | c & 0x3f);
+                } else if (Character.isSurrogate(c)) {
+                    char low = i + 1 < length ? value.charAt(i + 1) : 0;
+                    if (Character.isHighSurrogate(c) && Character.isLowSurrogate(low)) {
+                        int codePoint = Character.toCodePoint(c, low);
+                        buffer[pos++] = (byte) (0xf0 | codePoint >> 18);
+                        buffer[pos++] = (byte) (0x80 | codePoint >> 12 & 0x3f);
+                        buffer[pos++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+                        buffer[pos++] = (byte) (0x80 | codePoint & 0x3f);
+                        i++;
+                    } else {
+                        buffer[pos++] = '?';
+                    }
+                } else {
+                    buffer[pos++] = (byte) (0xe0 | c >> 12);
+                    buffer[pos++] = (byte) (0x80 | c >> 6 & 0x3f);
+                    buffer[pos++] = (byte) (0x80 | c & 0x3f);
+                }
+            }
+            size = pos;
+            return this;
+        }
+
+        private static int unicodeEscape(byte[] buffer, int pos, char c) {
+            buffer[pos++] = '\\';
+            buffer[pos++] = 'u';
+            buffer[pos++] = (byte) HEX[c >> 12 & 0xf];
+            buffer[pos++] = (byte) HEX[c >> 8 & 0xf];
+            buffer[pos++] = (byte) HEX[c >> 4 & 0xf];
+            buffer[pos++] = (byte) HEX[c & 0xf];
+            return pos;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+
+        private void ensure(int count) {
+            if (size + count > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + count));
+            }
+        }
+    }
+
+    /**
+     * Reads the JSON from the received bytes, throwing IllegalArgumentException on malformed input.
+     */
+    private static final class Reader {
+
+        private final byte[] bytes;
+        private int pos;
+        // the bounds of the last key read, its quotes excluded
+        private int keyStart;
+        private int keyEnd;
+        private String escapedKey;
+        // no comma before the first key of an object
+        private boolean firstKey;
+
+        Reader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        ZegoCallMessage readMessage() {
+            ZegoCallMessage message = new ZegoCallMessage();
+            beginObject();
+            while (nextKey()) {
+                if (keyIs(ACTION_TYPE)) {
+                    int value = readInt();
+                    if (value == NO_VALUE) {
+                        throw new IllegalArgumentException("illegal action_type");
+                    }
+                    message.actionType = value;
+                } else if (keyIs(TARGET)) {
+                    message.target = readStringList();
+                } else if (keyIs(CONTENT)) {
+                    message.content = readContent();
+                } else if (keyIs(SEQ)) {
+                    long value = readLong();
+                    message.seq = value == NO_LONG_VALUE ? null : value;
+                } else if (keyIs(WIRE_VERSION_KEY)) {
+                    int value = readInt();
+                    message.wireVersion = value == NO_VALUE ? null : value;
+                } else {
+                    skipValue();
+                }
+            }
+            skipWhitespace();
+            if (pos != bytes.length) {
+                throw new IllegalArgumentException("trailing data at " + pos);
+            }
+            return message;
+        }
+
+        int peekAction(String userID, byte[] userIDBytes) {
+            int actionType = NO_VALUE;
+            boolean targetRead = false;
+            beginObject();
+            while (nextKey()) {
+                if (keyIs(ACTION_TYPE)) {
+                    actionType = readInt();
+                    if (actionType == NO_VALUE) {
+                        return NOT_ADDRESSED;
+                    }
+                } else if (keyIs(TARGET)) {
+                    if (!readTargetContains(userID, userIDBytes)) {
+                        return NOT_ADDRESSED;
+                    }
+                    targetRead = true;
+                } else {
+                    skipValue();
+                }
+                if (actionType != NO_VALUE && targetRead) {
+                    return actionType;
+                }
+            }
+            return NOT_ADDRESSED;
+        }
+
+        private boolean readTargetContains(String userID, byte[] userIDBytes) {
+            if (nextIsNull()) {
+                return false;
+            }
+            expect('[');
+            skipWhitespace();
+            if (bytes[pos] == ']') {
+                pos++;
+                return false;
+            }
+            boolean found = false;
+            while (true) {
+                if (found) {
+                    skipValue();
+                } else {
+                    found = nextStringEquals(userID, userIDBytes);
+                }
+                skipWhitespace();
+                byte b = bytes[pos++];
+                if (b == ']') {
+                    return found;
+                }
+                if (b != ',') {
+                    throw new IllegalArgumentException("expected , or ] at " + (pos - 1));
+                }
+            }
+        }
+
+        /**
+         * Compare the next string with a value, on the raw bytes unless the string has escapes.
+         */
+        private boolean nextStringEquals(String value, byte[] utf8) {
+            skipWhitespace();
+            if (bytes[pos] != '"') {
+                return value.equals(readString());
+            }
+            int start = pos + 1;
+            int end = start;
+            while (bytes[end] != '"') {
+                if (bytes[end] == '\\') {
+                    return value.equals(readString());
+                }
+                end++;
+            }
+            pos = end + 1;
+            if (end - start != utf8.length) {
+                return false;
+            }
+            for (int i = 0; i < utf8.length; i++) {
+                if (bytes[start + i] != utf8[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private ContentBean readContent() {
+            if (nextIsNull()) {
+                return null;
+            }
+            ContentBean content = new ContentBean();
+            beginObject();
+            while (nextKey()) {
+                if (keyIs(USER_INFO)) {
+                    content.userInfo = readUserInfo();
+                } else if (keyIs(RESPONSE_TYPE)) {
+                    content.responseType = responseTypeOf(readInt());
+                } else if (keyIs(CALL_TYPE)) {
+                    content.callType = callTypeOf(readInt());
+                } else if (keyIs(CANCEL_TYPE)) {
+                    content.cancelType = cancelTypeOf(readInt());
+                } else {
+                    skipValue();
+                }
+            }
+            return content;
+        }
+
+        private UserInfoBean readUserInfo() {
+            if (nextIsNull()) {
+                return null;
+            }
+            UserInfoBean userInfo = new UserInfoBean(null, null);
+            beginObject();
+            while (nextKey()) {
+                if (keyIs(ID)) {
+                    userInfo.userID = readString();
+                } else if (keyIs(NAME)) {
+                    userInfo.userName = readString();
+                } else {
+                    skipValue();
+                }
+            }
+            return userInfo;
+        }
+
+        private List<String> readStringList() {
+            if (nextIsNull()) {
+                return null;
+            }
+            List<String> list = new ArrayList<>(1);
+            expect('[');
+            skipWhitespace();
+            if (bytes[pos] == ']') {
+                pos++;
+                return list;
+            }
+            while (true) {
+                list.add(readString());
+                skipWhitespace();
+                byte b = bytes[pos++];
+                if (b == ']') {
+                    return list;
+                }
+                if (b != ',') {
+                    throw new IllegalArgumentException("expected , or ] at " + (pos - 1));
+                }
+            }
+        }
+
+        private void beginObject() {
+            expect('{');
+            firstKey = true;
+        }
+
+        /**
+         * Move to the next key of the current object.
+         *
+         * @return false at the end of the object.
+         */
+        private boolean nextKey() {
+            skipWhitespace();
+            byte b = bytes[pos];
+            if (b == '}') {
+                pos++;
+                firstKey = false;
+                return false;
+            }
+            if (firstKey) {
+                firstKey = false;
+            } else {
+                if (b != ',') {
+                    throw new IllegalArgumentException("expected , or } at " + pos);
+                }
+                pos++;
+                skipWhitespace();
+            }
+            if (bytes[pos] != '"') {
+                throw new IllegalArgumentException("expected a key at " + pos);
+            }
+            int start = pos + 1;
+            int end = start;
+            escapedKey = null;
+            while (bytes[end] != '"') {
+                if (bytes[end] == '\\') {
+                    escapedKey = readString();
+                    end = -1;
+                    break;
+                }
+                end++;
+            }
+            if (end >= 0) {
+                keyStart = start;
+                keyEnd = end;
+                pos = end + 1;
+            }
+            expect(':');
+            return true;
+        }
+
+        /**
+         * @param key the encoded key constant, quotes and colon included.
+         */
+        private boolean keyIs(byte[] key) {
+            int length = key.length - 3;
+            if (escapedKey != null) {
+                return escapedKey.equals(new String(key, 1, length, StandardCharsets.UTF_8));
+            }
+            if (keyEnd - keyStart != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (bytes[keyStart + i] != key[i + 1]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Read an int, or a quoted int as Gson accepts it.
+         *
+         * @return the value, NO_VALUE if it is null or not an int.
+         */
+        private int readInt() {
+            long value = readLong();
+            if (value == NO_LONG_VALUE || value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+                return NO_VALUE;
+            }
+            return (int) value;
+        }
+
+        /**
+         * Read a long, or a quoted long as Gson accepts it.
+         *
+         * @return the value, NO_LONG_VALUE if it is null or not a long.
+         */
+        private long readLong() {
+            skipWhitespace();
+            byte b = bytes[pos];
+            if (b == '"') {
+                try {
+                    return Long.parseLong(readString());
+                } catch (NumberFormatException e) {
+                    return NO_LONG_VALUE;
+                }
+            }
+            if (nextIsNull()) {
+                return NO_LONG_VALUE;
+            }
+            int start = pos;
+            boolean negative = b == '-';
+            if (negative) {
+                pos++;
+            }
+            long value = 0;
+            int digits = 0;
+            while (pos < bytes.length && bytes[pos] >= '0' && bytes[pos] <= '9') {
+                value = value * 10 + (bytes[pos++] - '0');
+                if (++digits > 18) {
+                    break;
+                }
+            }
+            if (digits == 0) {
+                throw new IllegalArgumentException("expected a number at " + start);
+            }
+            if (pos < bytes.length && isNumberPart(bytes[pos])) {
+                // a fraction, an exponent or more digits than a long is sure to hold
+                pos = start;
+                skipValue();
+                return NO_LONG_VALUE;
+            }
+            return negative ? -value : value;
+        }
+
+        private String readString() {
+            skipWhitespace();
+            if (nextIsNull()) {
+                return null;
+            }
+            expect('"');
+            int start = pos;
+            // fast path: no escape
+            while (true) {
+                byte b = bytes[pos];
+                if (b == '"') {
+                    pos++;
+                    return new String(bytes, start, pos - 1 - start, StandardCharsets.UTF_8);
+                }
+                if (b == '\\') {
+                    break;
+                }
+                pos++;
+            }
+            StringBuilder builder = new StringBuilder(pos - start + 16);
+            builder.append(new String(bytes, start, pos - start, StandardCharsets.UTF_8));
+            while (true) {
+                byte b = bytes[pos];
+                if (b == '"') {
+                    pos++;
+                    return builder.toString();
+                }
+                if (b == '\\') {
+                    pos++;
+                    readEscape(builder);
+                    continue;
+                }
+                int runStart = pos;
+                while (bytes[pos] != '"' && bytes[pos] != '\\') {
+                    pos++;
+                }
+                builder.append(new String(bytes, runStart, pos - runStart, StandardCharsets.UTF_8));
+            }
+        }
+
+        private void readEscape(StringBuilder builder) {
+            byte b = bytes[pos++];
+            switch (b) {
+                case 'u':
+                    int c = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digit = Character.digit(bytes[pos++], 16);
+                        if (digit < 0) {
+                            throw new IllegalArgumentException("illegal unicode escape at " + (pos - 1));
+                        }
+                        c = c << 4 | digit;
+                    }
+                    builder.append((char) c);
+                    break;
+                case 't':
+                    builder.append('\t');
+                    break;
+                case 'b':
+                    builder.append('\b');
+                    break;
+                case 'n':
+                    builder.append('\n');
+                    break;
+                case 'r':
+                    builder.append('\r');
+                    break;
+                case 'f':
+                    builder.append('\f');
+                    break;
+                case '"':
+                case '\\':
+                case '/':
+                case '\'':
+                    builder.append((char) b);
+                    break;
+                default:
+                    throw new IllegalArgumentException("illegal escape at " + (pos - 1));
+            }
+        }
+
+        private void skipValue() {
+            skipWhitespace();
+            byte b = bytes[pos];
+            if (b == '"') {
+                readString();
+            } else if (b == '{' || b == '[') {
+                int depth = 0;
+                do {
+                    b = bytes[pos];
+                    if (b == '"') {
+                        readString();
+                        continue;
+                    }
+                    if (b == '{' || b == '[') {
+                        depth++;
+                    } else if (b == '}' || b == ']') {
+                        depth--;
+                    }
+                    pos++;
+                } while (depth > 0);
+            } else {
+                int start = pos;
+                while (pos < bytes.length && (isNumberPart(bytes[pos]) || Character.isLetter(bytes[pos]))) {
+                    pos++;
+                }
+                if (pos == start) {
+                    throw new IllegalArgumentException("expected a value at " + start);
+                }
+            }
+        }
+
+        private boolean nextIsNull() {
+            skipWhitespace();
+            if (pos + NULL.length <= bytes.length && bytes[pos] == 'n' && bytes[pos + 1] == 'u'
+                && bytes[pos + 2] == 'l' && bytes[pos + 3] == 'l') {
+                pos += NULL.length;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char c) {
+            skipWhitespace();
+            if (bytes[pos] != c) {
+                throw new IllegalArgumentException("expected " + c + " at " + pos);
+            }
+            pos++;
+        }
+
+        private void skipWhitespace() {
+            while (pos < bytes.length) {
+                byte b = bytes[pos];
+                if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                    return;
+                }
+                pos++;
+            }
+        }
+
+        private static boolean isNumberPart(byte b) {
+            return b >= '0' && b <= '9' || b == '-' || b == '+' || b == '.' || b == 'e' || b == 'E';
+        }
+    }
+
+    /**
+     * Reads the binary form from the received bytes, throwing IllegalArgumentException on malformed input.
+     */
+    private static final class BinaryReader {
+
+        private final byte[] bytes;
+        private int pos;
+
+        BinaryReader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        ZegoCallMessage readMessage() {
+            int version = bytes[pos++] & 0xff & ~BINARY_HEADER_MASK;
+            if (version == 0 || version > WIRE_VERSION) {
+                throw new IllegalArgumentException("unknown wire version " + version);
+            }
+            ZegoCallMessage message = new ZegoCallMessage();
+            message.wireVersion = version;
+            message.actionType = unzigzag(readVarint());
+            int flags = bytes[pos++];
+            if ((flags & FLAG_TARGET) != 0) {
+                int count = readVarint();
+                if (count < 0 || count > bytes.length - pos) {
+                    // every target takes a byte at least
+                    throw new IllegalArgumentException("illegal target count " + count);
+                }
+                List<String> target = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    target.add(readString());
+                }
+                message.target = target;
+            }
+            if ((flags & FLAG_CONTENT) != 0) {
+                ContentBean content = new ContentBean();
+                if ((flags & FLAG_USER_INFO) != 0) {
+                    String userID = readString();
+                    content.userInfo = new UserInfoBean(userID, readString());
+                }
+                if ((flags & FLAG_RESPONSE_TYPE) != 0) {
+                    content.responseType = responseTypeOf(unzigzag(readVarint()));
+                }
+                if ((flags & FLAG_CALL_TYPE) != 0) {
+                    content.callType = callTypeOf(unzigzag(readVarint()));
+                }
+                if ((flags & FLAG_CANCEL_TYPE) != 0) {
+                    content.cancelType = cancelTypeOf(unzigzag(readVarint()));
+                }
+                message.content = content;
+            }
+            if ((flags & FLAG_SEQ) != 0) {
+                if (version < SEQ_WIRE_VERSION) {
+                    throw new IllegalArgumentException("seq in wire version " + version);
+                }
+                message.seq = readVarlong();
+            }
+            if (pos != bytes.length) {
+                throw new IllegalArgumentException("trailing data at " + pos);
+            }
+            return message;
+        }
+
+        int peekAction(byte[] userIDBytes) {
+            int version = bytes[pos++] & 0xff & ~BINARY_HEADER_MASK;
+            if (version == 0 || version > WIRE_VERSION) {
+                return NOT_ADDRESSED;
+            }
+            int actionType = unzigzag(readVarint());
+            int flags = bytes[pos++];
+            if ((flags & FLAG_TARGET) == 0) {
+                return NOT_ADDRESSED;
+            }
+            int count = readVarint();
+            for (int i = 0; i < count; i++) {
+                int length = readVarint() - 1;
+                if (length < -1 || length > bytes.length - pos) {
+                    throw new IllegalArgumentException("illegal string length " + length);
+                }
+                if (length == userIDBytes.length && regionEquals(pos, userIDBytes)) {
+                    return actionType;
+                }
+                pos += Math.max(length, 0);
+            }
+            return NOT_ADDRESSED;
+        }
+
+        private boolean regionEquals(int start, byte[] value) {
+            for (int i = 0; i < value.length; i++) {
+                if (bytes[start + i] != value[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int readVarint() {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                byte b = bytes[pos++];
+                value |= (b & 0x7f) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("varint too long at " + pos);
+        }
+
+        private long readVarlong() {
+            long value = 0;
+            for (int shift = 0; shift < 70; shift += 7) {
+                byte b = bytes[pos++];
+                value |= (long) (b & 0x7f) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("varint too long at " + pos);
+        }
+
+        private String readString() {
+            int length = readVarint() - 1;
+            if (length == -1) {
+                return null;
+            }
+            if (length < 0 || length > bytes.length - pos) {
+                throw new IllegalArgumentException("illegal string length " + length);
+            }
+            String value = new String(bytes, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package im.zego.callsdk.utils;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import im.zego.callsdk.model.ZegoCallMessage;
+import im.zego.callsdk.model.ZegoCallMessage.ContentBean;
+import im.zego.callsdk.model.ZegoCallMessage.UserInfoBean;
+import im.zego.callsdk.model.ZegoCallType;
+import im.zego.callsdk.model.ZegoRoomInfo;
+import im.zego.callsdk.model.ZegoUserInfo;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Class codec registry.
+ * <p>
+ * Description: This class holds the one Gson shared by the SDK and the app, with the
+ * {@link CustomTypeAdapterFactory} registered. Gson builds the reflective adapter of a type the first time it sees the
+ * type, and every Gson instance builds its own, which used to happen in the middle of ringing or accepting a call.
+ * {@link #warmUp()} builds the adapters of the registered types on a background thread instead, along with the
+ * {@link ZegoCallMessageCodec}. Gson is thread safe and keeps the adapters it built, so every thread finds them ready.
+ */
+public final class ZegoCodecRegistry {
+
+    private static final Gson gson = new GsonBuilder()
+        .registerTypeAdapterFactory(new CustomTypeAdapterFactory())
+        .create();
+
+    private static final List<Type> types = new CopyOnWriteArrayList<>(Arrays.<Type>asList(
+        ZegoUserInfo.class, ZegoRoomInfo.class, ZegoCallMessage.class));
+
+    private static final AtomicBoolean warmUpStarted = new AtomicBoolean();
+
+    private ZegoCodecRegistry() {
+    }
+
+    /**
+     * Get the shared Gson.
+     * <p>
+     * Call this method at: Any time
+     */
+    public static Gson gson() {
+        return gson;
+    }
+
+    /**
+     * Register types to be warmed up, such as the beans of the app.
+     * <p>
+     * Call this method at: Before {@link #warmUp()}, the types registered after it are built on first use.
+     *
+     * @param types refers to the classes, or the generic types built with a TypeToken.
+     */
+    public static void register(Type... types) {
+        Collections.addAll(ZegoCodecRegistry.types, types);
+    }
+
+    /**
+     * Build the adapters of the registered types on a background thread. Only the first call does anything.
+     * <p>
+     * Call this method at: When the SDK is initialized
+     */
+    public static void warmUp() {
+        if (!warmUpStarted.compareAndSet(false, true)) {
+            return;
+        }
+        Thread thread = new Thread(ZegoCodecRegistry::warmUpNow, "codec-warmup");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    private static void warmUpNow() {
+        for (Type type : types) {
+            gson.getAdapter(TypeToken.get(type));
+        }
+
+        // loads the codec and the enum tables it looks the values up in
+        ZegoCallMessage callMessage = new ZegoCallMessage();
+        callMessage.actionType = ZegoCallMessage.CALL;
+        callMessage.target = Collections.singletonList("");
+        ContentBean contentBean = new ContentBean();
+        contentBean.userInfo = new UserInfoBean("", "");
+        contentBean.callType = ZegoCallType.Voice;
+        callMessage.content = contentBean;
+        ZegoCallMessageCodec.decode(ZegoCallMessageCodec.encode(callMessage));
+        ZegoCallMessageCodec.decode(ZegoCallMessageCodec.encodeBinary(callMessage));
+    }
+}
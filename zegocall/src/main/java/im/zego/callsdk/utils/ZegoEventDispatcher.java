@@ -0,0 +1,209 @@
+package im.zego.callsdk.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Class event dispatcher.
+ * <p>
+ * Description: This class runs the events posted from any thread one after the other, in the order they were posted,
+ * on a single consumer such as the main thread. The events wait in a ring, and the consumer is handed one task per
+ * batch of events instead of one per event, so a burst of events costs a few posts to the main thread and is delivered
+ * in order with the actions of the user in between. An event posted with a key replaces the pending event of the same
+ * key in place, so only the latest state of a user, for example, is delivered. Only the keyed events are bounded: when
+ * as many of them as the capacity are pending, the {@link Overflow} policy decides which keyed event is dropped. An
+ * event posted without a key, such as a signaling message or a change of the room state, is never dropped, the ring
+ * grows to hold it.
+ */
+public final class ZegoEventDispatcher {
+
+    /**
+     * What to drop when a keyed event is posted while the capacity of keyed events is reached.
+     */
+    public enum Overflow {
+        /**
+         * Drop the oldest pending keyed event, the latest states are delivered.
+         */
+        DROP_OLDEST,
+        /**
+         * Drop the keyed event being posted, the pending events are delivered as they are.
+         */
+        DROP_NEWEST
+    }
+
+    private final int capacity;
+    private final int batchSize;
+    private final Overflow overflow;
+    private final Executor consumer;
+    // the pending event of each key, by its position, the oldest first
+    private final Map<String, Long> keyPositions = new LinkedHashMap<>();
+    private final Runnable drain = this::drain;
+
+    private Runnable[] events;
+    private String[] keys;
+    // the positions of the next event to run and of the next event posted, the slot is the position modulo capacity
+    private long head;
+    private long tail;
+    // whether a drain is handed to the consumer and did not finish
+    private boolean scheduled;
+    // the slots between head and tail emptied by a dropped keyed event
+    private int holes;
+    private long droppedCount;
+
+    /**
+     * @param capacity  refers to the number of keyed events that can be pending, and the initial size of the ring.
+     * @param batchSize refers to the number of events run by one task of the consumer.
+     * @param overflow  refers to what is dropped when the ring is full.
+     * @param consumer  refers to where the events run, such as the post method of a handler of the main thread.
+     */
+    public ZegoEventDispatcher(int capacity, int batchSize, Overflow overflow, Executor consumer) {
+        if (capacity <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("capacity = " + capacity + ", batchSize = " + batchSize);
+        }
+        this.capacity = capacity;
+        this.events = new Runnable[capacity];
+        this.keys = new String[capacity];
+        this.batchSize = batchSize;
+        this.overflow = overflow;
+        this.consumer = consumer;
+    }
+
+    /**
+     * Post an event that is always delivered.
+     *
+     * @return true, the event is never dropped.
+     */
+    public boolean post(Runnable event) {
+        return post(null, event);
+    }
+
+    /**
+     * Post an event that replaces the pending event of the same key, keeping its place in the order.
+     *
+     * @param key refers to what the event is the latest state of, null if the event replaces none and is never
+     *            dropped.
+     * @return whether the event was queued or replaced a pending one.
+     */
+    public boolean post(String key, Runnable event) {
+        boolean schedule;
+        synchronized (this) {
+            if (key != null) {
+                Long position = keyPositions.get(key);
+                if (position != null) {
+                    events[slot(position)] = event;
+                    return true;
+                }
+            }
+            if (key != null && keyPositions.size() == capacity) {
+                droppedCount++;
+                if (overflow == Overflow.DROP_NEWEST) {
+                    return false;
+                }
+                dropOldestKeyed();
+            }
+            if (tail - head == events.length) {
+                grow();
+            }
+            int slot = slot(tail);
+            events[slot] = event;
+            keys[slot] = key;
+            if (key != null) {
+                keyPositions.put(key, tail);
+            }
+            tail++;
+            schedule = !scheduled;
+            scheduled = true;
+        }
+        if (schedule) {
+            consumer.execute(drain);
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of keyed events dropped because the capacity was reached.
+     */
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * @return the number of events waiting to run.
+     */
+    public synchronized int getPendingCount() {
+        return (int) (tail - head) - holes;
+    }
+
+    private void drain() {
+        try {
+            for (int i = 0; i < batchSize; i++) {
+                Runnable event = null;
+                synchronized (this) {
+                    // past the holes of the dropped events
+                    while (event == null && head != tail) {
+                        event = take();
+                    }
+                }
+                if (event == null) {
+                    break;
+                }
+                event.run();
+            }
+        } finally {
+            boolean schedule;
+            synchronized (this) {
+                // the rest in a later task, so the consumer gets to its other work in between
+                schedule = head != tail;
+                scheduled = schedule;
+            }
+            if (schedule) {
+                consumer.execute(drain);
+            }
+        }
+    }
+
+    // call with the lock held and the ring not empty, null for a hole
+    private Runnable take() {
+        int slot = slot(head);
+        Runnable event = events[slot];
+        String key = keys[slot];
+        if (key != null) {
+            keyPositions.remove(key);
+        }
+        if (event == null) {
+            holes--;
+        }
+        events[slot] = null;
+        keys[slot] = null;
+        head++;
+        return event;
+    }
+
+    // call with the lock held and a keyed event pending, its slot becomes a hole skipped by the drain
+    private void dropOldestKeyed() {
+        Iterator<Map.Entry<String, Long>> oldest = keyPositions.entrySet().iterator();
+        int slot = slot(oldest.next().getValue());
+        oldest.remove();
+        events[slot] = null;
+        keys[slot] = null;
+        holes++;
+    }
+
+    // call with the lock held and the ring full, the events keep their positions
+    private void grow() {
+        Runnable[] grownEvents = new Runnable[events.length * 2];
+        String[] grownKeys = new String[keys.length * 2];
+        for (long position = head; position != tail; position++) {
+            grownEvents[(int) (position % grownEvents.length)] = events[slot(position)];
+            grownKeys[(int) (position % grownKeys.length)] = keys[slot(position)];
+        }
+        events = grownEvents;
+        keys = grownKeys;
+    }
+
+    private int slot(long position) {
+        return (int) (position % events.length);
+    }
+}
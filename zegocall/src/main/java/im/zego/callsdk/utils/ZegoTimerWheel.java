@@ -0,0 +1,226 @@
+package im.zego.callsdk.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Class timer wheel.
+ * <p>
+ * Description: This class runs tasks after a delay, all of them timed by one thread. The time is cut into ticks, and
+ * the timeouts wait in a ring of buckets, one bucket per tick: a timeout is linked into the bucket of its deadline and
+ * unlinked when it is canceled, both in constant time however many timeouts are pending. Each tick the thread looks at
+ * one bucket only, and hands the timeouts that are due to the consumer, such as the main thread, where they run. A
+ * timeout canceled on the consumer before it runs does not run. The thread waits without ticking while no timeout is
+ * pending, and a timeout runs at most one tick late.
+ */
+public final class ZegoTimerWheel {
+
+    private static final int PENDING = 0;
+    private static final int CANCELED = 1;
+    private static final int EXPIRED = 2;
+
+    /**
+     * A task waiting in the wheel.
+     */
+    public final class Timeout {
+
+        private final Runnable task;
+        // the tick the task is due at, counted from the start of the wheel
+        private final long deadline;
+        private int state = PENDING;
+        // the neighbours in the bucket, a timeout out of its bucket has none and is not the head
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * @return whether the task will not run, false if it ran, runs or was canceled already.
+         */
+        public boolean cancel() {
+            synchronized (ZegoTimerWheel.this) {
+                if (state != PENDING) {
+                    return false;
+                }
+                state = CANCELED;
+                unlink(this);
+                return true;
+            }
+        }
+
+        public boolean isCanceled() {
+            synchronized (ZegoTimerWheel.this) {
+                return state == CANCELED;
+            }
+        }
+
+        public boolean isExpired() {
+            synchronized (ZegoTimerWheel.this) {
+                return state == EXPIRED;
+            }
+        }
+
+        private void expire() {
+            synchronized (ZegoTimerWheel.this) {
+                // canceled, or the wheel stopped, between the tick and now
+                if (state != PENDING || stopped) {
+                    return;
+                }
+                state = EXPIRED;
+            }
+            task.run();
+        }
+    }
+
+    private final long tickMillis;
+    private final Timeout[] buckets;
+    private final int mask;
+    private final Executor consumer;
+    private final long startTime = System.nanoTime();
+
+    private Thread thread;
+    private boolean stopped;
+    // the next tick to look at, the ticks before it are done
+    private long nextTick;
+    // the timeouts linked in the buckets
+    private int pendingCount;
+
+    /**
+     * @param tickMillis refers to how long a tick is, the precision of the timeouts.
+     * @param wheelSize  refers to the number of buckets, a power of two. A timeout that is due after more than a turn
+     *                   of the wheel is looked at once per turn until it is due.
+     * @param consumer   refers to where the tasks run, such as the post method of a handler of the main thread.
+     */
+    public ZegoTimerWheel(long tickMillis, int wheelSize, Executor consumer) {
+        if (tickMillis <= 0 || wheelSize <= 0 || (wheelSize & (wheelSize - 1)) != 0) {
+            throw new IllegalArgumentException("tickMillis = " + tickMillis + ", wheelSize = " + wheelSize);
+        }
+        this.tickMillis = tickMillis;
+        this.buckets = new Timeout[wheelSize];
+        this.mask = wheelSize - 1;
+        this.consumer = consumer;
+    }
+
+    /**
+     * Run a task on the consumer after a delay.
+     *
+     * @return the timeout of the task, to cancel it.
+     */
+    public Timeout newTimeout(Runnable task, long delayMillis) {
+        synchronized (this) {
+            if (stopped) {
+                throw new IllegalStateException("the timer wheel is stopped");
+            }
+            if (pendingCount == 0) {
+                // nothing was due in the ticks the thread slept through
+                nextTick = Math.max(nextTick, elapsedMillis() / tickMillis);
+            }
+            // from the current time rounded up, a task never runs early
+            long due = (System.nanoTime() - startTime + 999999) / 1000000 + Math.max(delayMillis, 0);
+            // rounded up to a tick
+            long deadline = Math.max((due + tickMillis - 1) / tickMillis, nextTick);
+            Timeout timeout = new Timeout(task, deadline);
+            int slot = (int) (deadline & mask);
+            timeout.next = buckets[slot];
+            if (timeout.next != null) {
+                timeout.next.prev = timeout;
+            }
+            buckets[slot] = timeout;
+            pendingCount++;
+            if (thread == null) {
+                thread = new Thread(this::tick, "ZegoTimerWheel");
+                thread.setDaemon(true);
+                thread.start();
+            } else if (pendingCount == 1) {
+                notifyAll();
+            }
+            return timeout;
+        }
+    }
+
+    /**
+     * @return the number of timeouts waiting in the wheel.
+     */
+    public synchronized int getPendingCount() {
+        return pendingCount;
+    }
+
+    /**
+     * Stop the thread. The pending timeouts do not run, and no timeout can be added any more.
+     */
+    public synchronized void stop() {
+        stopped = true;
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = null;
+        }
+        pendingCount = 0;
+        notifyAll();
+    }
+
+    private void tick() {
+        List<Timeout> expired = new ArrayList<>();
+        while (true) {
+            synchronized (this) {
+                try {
+                    while (pendingCount == 0 && !stopped) {
+                        wait();
+                    }
+                    if (stopped) {
+                        return;
+                    }
+                    long waitMillis = nextTick * tickMillis - elapsedMillis();
+                    if (waitMillis > 0) {
+                        // woken early when the wheel is stopped
+                        wait(waitMillis);
+                        continue;
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                Timeout timeout = buckets[(int) (nextTick & mask)];
+                while (timeout != null) {
+                    Timeout next = timeout.next;
+                    // the others are due in a later turn of the wheel
+                    if (timeout.deadline <= nextTick) {
+                        unlink(timeout);
+                        expired.add(timeout);
+                    }
+                    timeout = next;
+                }
+                nextTick++;
+            }
+            for (int i = 0; i < expired.size(); i++) {
+                consumer.execute(expired.get(i)::expire);
+            }
+            expired.clear();
+        }
+    }
+
+    // call with the lock held
+    private void unlink(Timeout timeout) {
+        int slot = (int) (timeout.deadline & mask);
+        if (timeout.prev == null && buckets[slot] != timeout) {
+            // out of its bucket already
+            return;
+        }
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            buckets[slot] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        pendingCount--;
+    }
+
+    private long elapsedMillis() {
+        return (System.nanoTime() - startTime) / 1000000;
+    }
+}
@@ -0,0 +1,59 @@
+package im.zego.callsdk.auth;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import im.zego.callsdk.auth.ZegoTokenDecoder.DecodedToken;
+import im.zego.callsdk.auth.ZegoTokenEngine.ErrorCode;
+import im.zego.callsdk.auth.ZegoTokenEngine.Privileges;
+import im.zego.callsdk.auth.ZegoTokenEngine.RoomTokenRequest;
+import im.zego.callsdk.auth.ZegoTokenEngine.TokenInfo;
+
+import static org.junit.Assert.assertEquals;
+
+public class TokenBatchTest {
+
+    private static final long APP_ID = 1234567890L;
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+    private static final int EFFECTIVE_SECONDS = 3600;
+
+    @Test
+    public void generateZIMTokens_keepsTheOrderOfALargeBatch() {
+        List<String> userIds = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            userIds.add("user_" + i);
+        }
+        // an illegal user in the middle fails alone
+        userIds.set(150, "");
+        List<TokenInfo> tokens = ZegoTokenEngine.generateZIMTokens(APP_ID, userIds, SECRET, EFFECTIVE_SECONDS);
+        assertEquals(userIds.size(), tokens.size());
+        for (int i = 0; i < userIds.size(); i++) {
+            if (i == 150) {
+                assertEquals(ErrorCode.ILLEGAL_USER_ID, tokens.get(i).error.code);
+                continue;
+            }
+            DecodedToken decoded = ZegoTokenDecoder.verify(tokens.get(i).data, SECRET);
+            assertEquals(ErrorCode.SUCCESS, decoded.error.code);
+            assertEquals(userIds.get(i), decoded.userId);
+        }
+    }
+
+    @Test
+    public void generateRTCTokens_keepsTheOrderOfALargeBatch() {
+        Privileges privilege = new Privileges();
+        privilege.canLoginRoom = true;
+        List<RoomTokenRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            requests.add(new RoomTokenRequest("room_" + i, "user_" + i, privilege));
+        }
+        List<TokenInfo> tokens = ZegoTokenEngine.generateRTCTokens(APP_ID, requests, SECRET, EFFECTIVE_SECONDS);
+        for (int i = 0; i < requests.size(); i++) {
+            DecodedToken decoded = ZegoTokenDecoder.verify(tokens.get(i).data, SECRET);
+            assertEquals(ErrorCode.SUCCESS, decoded.error.code);
+            assertEquals("room_" + i, decoded.roomId);
+            assertEquals("user_" + i, decoded.userId);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package im.zego.callsdk.auth;
+
+import org.junit.Test;
+
+import im.zego.callsdk.auth.ZegoTokenEngine.ErrorCode;
+import im.zego.callsdk.auth.ZegoTokenEngine.Privileges;
+import im.zego.callsdk.auth.ZegoTokenEngine.TokenInfo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ZegoTokenDecoderTest {
+
+    private static final long APP_ID = 1234567890L;
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+    private static final String OTHER_SECRET = "fedcba9876543210fedcba9876543210";
+    private static final int EFFECTIVE_SECONDS = 3600;
+
+    @Test
+    public void verify_rejectsAnotherSecret() {
+        TokenInfo token = ZegoTokenEngine.generateZIMToken(APP_ID, "user_1", SECRET, EFFECTIVE_SECONDS);
+        assertEquals(ErrorCode.ILLEGAL_TOKEN, ZegoTokenDecoder.verify(token.data, OTHER_SECRET).error.code);
+        assertEquals(ErrorCode.ILLEGAL_SECRET, ZegoTokenDecoder.verify(token.data, "short").error.code);
+        assertEquals(ErrorCode.ILLEGAL_SECRET, ZegoTokenDecoder.verify(token.data, null).error.code);
+    }
+
+    @Test
+    public void verify_rejectsMalformedTokens() {
+        TokenInfo token = ZegoTokenEngine.generateZIMToken(APP_ID, "user_1", SECRET, EFFECTIVE_SECONDS);
+        String[] malformed = {
+            null,
+            "",
+            "04",
+            "05" + token.data.substring(2),
+            "04!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!",
+            token.data.substring(0, token.data.length() / 2),
+            token.data.substring(0, token.data.length() - 8) + "AAAAAAAA",
+        };
+        for (String data : malformed) {
+            assertEquals(String.valueOf(data), ErrorCode.ILLEGAL_TOKEN,
+                ZegoTokenDecoder.verify(data, SECRET).error.code);
+        }
+    }
+
+    @Test
+    public void peek_matchesVerify() {
+        TokenInfo zim = ZegoTokenEngine.generateZIMToken(APP_ID, "user_1", SECRET, EFFECTIVE_SECONDS);
+        TokenInfo rtc = ZegoTokenEngine.generateRTCToken(APP_ID, "room_1", "user_1", new Privileges(), SECRET,
+            EFFECTIVE_SECONDS);
+        assertEquals("04", ZegoTokenDecoder.peekVersion(zim.data));
+        assertEquals("03", ZegoTokenDecoder.peekVersion(rtc.data));
+        assertEquals(ZegoTokenDecoder.verify(zim.data, SECRET).expireTime, ZegoTokenDecoder.peekExpireTime(zim.data));
+        assertEquals(ZegoTokenDecoder.verify(rtc.data, SECRET).expireTime, ZegoTokenDecoder.peekExpireTime(rtc.data));
+
+        assertNull(ZegoTokenDecoder.peekVersion("05" + zim.data.substring(2)));
+        assertNull(ZegoTokenDecoder.peekVersion(null));
+        assertEquals(-1, ZegoTokenDecoder.peekExpireTime("04"));
+        assertEquals(-1, ZegoTokenDecoder.peekExpireTime("04!!!!!!!!!!!!!!!!"));
+    }
+
+    @Test
+    public void isExpired_usesTheMargin() {
+        TokenInfo token = ZegoTokenEngine.generateZIMToken(APP_ID, "user_1", SECRET, EFFECTIVE_SECONDS);
+        assertFalse(ZegoTokenDecoder.isExpired(token.data, 0));
+        assertFalse(ZegoTokenDecoder.isExpired(token.data, EFFECTIVE_SECONDS - 60));
+        assertTrue(ZegoTokenDecoder.isExpired(token.data, EFFECTIVE_SECONDS + 60));
+        assertTrue(ZegoTokenDecoder.isExpired("garbage", 0));
+    }
+}
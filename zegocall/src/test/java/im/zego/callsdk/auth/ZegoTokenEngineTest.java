@@ -0,0 +1,88 @@
+package im.zego.callsdk.auth;
+
+import org.junit.Test;
+
+import im.zego.callsdk.auth.ZegoTokenDecoder.DecodedToken;
+import im.zego.callsdk.auth.ZegoTokenEngine.ErrorCode;
+import im.zego.callsdk.auth.ZegoTokenEngine.Privileges;
+import im.zego.callsdk.auth.ZegoTokenEngine.TokenInfo;
+import im.zego.callsdk.auth.ZegoTokenEngine.TokenPair;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ZegoTokenEngineTest {
+
+    private static final long APP_ID = 1234567890L;
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+    private static final int EFFECTIVE_SECONDS = 3600;
+
+    @Test
+    public void generateZIMToken_mintsAVerifiableToken() {
+        long now = System.currentTimeMillis() / 1000;
+        TokenInfo token = ZegoTokenEngine.generateZIMToken(APP_ID, "user_1", SECRET, EFFECTIVE_SECONDS);
+        assertEquals(ErrorCode.SUCCESS, token.error.code);
+
+        DecodedToken decoded = ZegoTokenDecoder.verify(token.data, SECRET);
+        assertEquals(decoded.error.message, ErrorCode.SUCCESS, decoded.error.code);
+        assertEquals("04", decoded.version);
+        assertEquals(APP_ID, decoded.appId);
+        assertEquals("user_1", decoded.userId);
+        assertTrue(Math.abs(decoded.expireTime - (now + EFFECTIVE_SECONDS)) <= 1);
+    }
+
+    @Test
+    public void generateRTCToken_mintsAVerifiableToken() {
+        Privileges privilege = new Privileges();
+        privilege.canLoginRoom = true;
+        TokenInfo token = ZegoTokenEngine.generateRTCToken(APP_ID, "room_1", "user_1", privilege, SECRET,
+            EFFECTIVE_SECONDS);
+        assertEquals(ErrorCode.SUCCESS, token.error.code);
+
+        DecodedToken decoded = ZegoTokenDecoder.verify(token.data, SECRET);
+        assertEquals(decoded.error.message, ErrorCode.SUCCESS, decoded.error.code);
+        assertEquals("03", decoded.version);
+        assertEquals(APP_ID, decoded.appId);
+        assertEquals("user_1", decoded.userId);
+        assertEquals("room_1", decoded.roomId);
+        assertTrue(decoded.privilege.canLoginRoom);
+        assertFalse(decoded.privilege.canPublishStream);
+    }
+
+    @Test
+    public void generateTokens_mintsBothTokensAlike() {
+        Privileges privilege = new Privileges();
+        privilege.canPublishStream = true;
+        TokenPair pair = ZegoTokenEngine.generateTokens(APP_ID, "room_1", "user_1", privilege, SECRET,
+            EFFECTIVE_SECONDS);
+        DecodedToken zim = ZegoTokenDecoder.verify(pair.zimToken.data, SECRET);
+        DecodedToken rtc = ZegoTokenDecoder.verify(pair.rtcToken.data, SECRET);
+        assertEquals(ErrorCode.SUCCESS, zim.error.code);
+        assertEquals(ErrorCode.SUCCESS, rtc.error.code);
+        assertEquals(zim.expireTime, rtc.expireTime);
+        assertTrue(rtc.privilege.canPublishStream);
+    }
+
+    @Test
+    public void generateTokens_rejectsIllegalInput() {
+        assertEquals(ErrorCode.ILLEGAL_APP_ID,
+            ZegoTokenEngine.generateZIMToken(0, "user_1", SECRET, EFFECTIVE_SECONDS).error.code);
+        assertEquals(ErrorCode.ILLEGAL_USER_ID,
+            ZegoTokenEngine.generateZIMToken(APP_ID, "", SECRET, EFFECTIVE_SECONDS).error.code);
+        assertEquals(ErrorCode.ILLEGAL_SECRET,
+            ZegoTokenEngine.generateZIMToken(APP_ID, "user_1", "short", EFFECTIVE_SECONDS).error.code);
+        assertEquals(ErrorCode.ILLEGAL_EFFECTIVE_TIME,
+            ZegoTokenEngine.generateZIMToken(APP_ID, "user_1", SECRET, 0).error.code);
+        assertEquals(ErrorCode.ILLEGAL_ROOM_ID, ZegoTokenEngine.generateRTCToken(APP_ID, "", "user_1",
+            new Privileges(), SECRET, EFFECTIVE_SECONDS).error.code);
+        assertEquals(ErrorCode.ILLEGAL_PRIVILEGE, ZegoTokenEngine.generateRTCToken(APP_ID, "room_1", "user_1",
+            null, SECRET, EFFECTIVE_SECONDS).error.code);
+
+        // the ZIM token does not need the room
+        TokenPair pair = ZegoTokenEngine.generateTokens(APP_ID, "", "user_1", new Privileges(), SECRET,
+            EFFECTIVE_SECONDS);
+        assertEquals(ErrorCode.SUCCESS, pair.zimToken.error.code);
+        assertEquals(ErrorCode.ILLEGAL_ROOM_ID, pair.rtcToken.error.code);
+    }
+}
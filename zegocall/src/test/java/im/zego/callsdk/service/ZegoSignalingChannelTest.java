@@ -0,0 +1,164 @@
+package im.zego.callsdk.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import im.zego.callsdk.model.ZegoCallMessage;
+import im.zego.callsdk.model.ZegoCallType;
+import im.zego.callsdk.model.ZegoCancelType;
+import im.zego.callsdk.model.ZegoRetryPolicy;
+import im.zego.callsdk.utils.ZegoCallMessageCodec;
+import im.zego.callsdk.utils.ZegoTimerWheel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ZegoSignalingChannelTest {
+
+    private static final long RETRY_MILLIS = 20;
+
+    // the retries of the wheel, run by the test as the main thread would
+    private final BlockingQueue<Runnable> mainThread = new LinkedBlockingQueue<>();
+    private final ZegoTimerWheel timerWheel = new ZegoTimerWheel(5, 64, mainThread::add);
+    // the messages sent, decoded, with the user they were sent to
+    private final List<ZegoCallMessage> sent = new ArrayList<>();
+    private final List<String> sentTo = new ArrayList<>();
+    private ZegoSignalingChannel channel;
+
+    @Before
+    public void setUp() {
+        channel = new ZegoSignalingChannel(timerWheel, (userID, bytes, callback) -> {
+            sent.add(ZegoCallMessageCodec.decode(bytes));
+            sentTo.add(userID);
+            callback.onRoomCallback(0);
+        });
+        ZegoRetryPolicy policy = new ZegoRetryPolicy(3, RETRY_MILLIS, RETRY_MILLIS);
+        channel.setRetryPolicy(ZegoCallMessage.CALL, policy);
+        channel.setRetryPolicy(ZegoCallMessage.CANCEL_CALL, policy);
+        channel.setRetryPolicy(ZegoCallMessage.RESPONSE_CALL, policy);
+        channel.login("a", "A");
+    }
+
+    @After
+    public void tearDown() {
+        timerWheel.stop();
+    }
+
+    @Test
+    public void onReceive_dropsDuplicatesAndAcksThemAgain() {
+        ZegoCallMessage message = received(ZegoCallMessage.CALL, 7L, 2);
+        assertTrue(channel.onReceive(message, "b"));
+        assertFalse(channel.onReceive(received(ZegoCallMessage.CALL, 7L, 2), "b"));
+        assertTrue(channel.onReceive(received(ZegoCallMessage.CALL, 8L, 2), "b"));
+        // the same seq from another peer is another message
+        assertTrue(channel.onReceive(received(ZegoCallMessage.CALL, 7L, 2), "c"));
+        assertEquals(4, sent.size());
+        for (ZegoCallMessage ack : sent) {
+            assertEquals(ZegoCallMessage.ACK, ack.actionType);
+        }
+        assertEquals(Long.valueOf(7), sent.get(1).seq);
+        assertEquals(1, channel.getStats(ZegoCallMessage.CALL).duplicates);
+    }
+
+    @Test
+    public void onReceive_keepsTheVersionOfAFirstMessageOverADuplicate() {
+        channel.onReceive(received(ZegoCallMessage.CANCEL_CALL, 3L, 2), "b");
+        // a late copy, as an older build of the peer would have sent it
+        channel.onReceive(received(ZegoCallMessage.CANCEL_CALL, 3L, null), "b");
+        assertEquals(2, channel.getPeerWireVersion("b"));
+    }
+
+    @Test
+    public void call_isResentUntilAcked() throws InterruptedException {
+        channel.onReceive(received(ZegoCallMessage.RESPONSE_CALL, null, 2), "b");
+        channel.call(Collections.singletonList("b"), ZegoCallType.Video, (userID, errorCode) -> {
+        });
+        runMainThread(RETRY_MILLIS * 3);
+        assertTrue(sent.size() >= 2);
+        long seq = sent.get(0).seq;
+        for (ZegoCallMessage message : sent) {
+            assertEquals(Long.valueOf(seq), message.seq);
+        }
+        int sentBeforeAck = sent.size();
+        channel.onReceive(ack(seq), "b");
+        runMainThread(RETRY_MILLIS * 5);
+        assertEquals(sentBeforeAck, sent.size());
+        assertEquals(1, channel.getStats(ZegoCallMessage.CALL).acked);
+    }
+
+    @Test
+    public void call_toAPeerNotHeardFromIsSentOnce() throws InterruptedException {
+        channel.call(Collections.singletonList("b"), ZegoCallType.Voice, (userID, errorCode) -> {
+        });
+        runMainThread(RETRY_MILLIS * 5);
+        assertEquals(1, sent.size());
+        assertEquals(0, channel.getStats(ZegoCallMessage.CALL).retries);
+    }
+
+    @Test
+    public void call_stopsResendingAnEarlierCancel() throws InterruptedException {
+        channel.onReceive(received(ZegoCallMessage.RESPONSE_CALL, null, 2), "b");
+        channel.cancel("b", ZegoCancelType.INTENT, null);
+        channel.call(Collections.singletonList("b"), ZegoCallType.Voice, (userID, errorCode) -> {
+        });
+        channel.onReceive(ack(sent.get(1).seq), "b");
+        runMainThread(RETRY_MILLIS * 5);
+        assertEquals(2, sent.size());
+        assertEquals(ZegoCallMessage.CANCEL_CALL, sent.get(0).actionType);
+        assertEquals(ZegoCallMessage.CALL, sent.get(1).actionType);
+    }
+
+    @Test
+    public void cancel_toAPeerKnownToBeOlderIsSentOnce() throws InterruptedException {
+        channel.onReceive(received(ZegoCallMessage.RESPONSE_CALL, null, null), "b");
+        channel.cancel("b", ZegoCancelType.INTENT, null);
+        runMainThread(RETRY_MILLIS * 5);
+        assertEquals(1, sent.size());
+        assertEquals(ZegoCallMessage.CANCEL_CALL, sent.get(0).actionType);
+    }
+
+    @Test
+    public void cancel_stopsResendingTheInvite() throws InterruptedException {
+        channel.onReceive(received(ZegoCallMessage.RESPONSE_CALL, null, 2), "b");
+        channel.call(Collections.singletonList("b"), ZegoCallType.Voice, (userID, errorCode) -> {
+        });
+        channel.cancel("b", ZegoCancelType.INTENT, null);
+        channel.onReceive(ack(sent.get(1).seq), "b");
+        runMainThread(RETRY_MILLIS * 5);
+        assertEquals(2, sent.size());
+    }
+
+    private void runMainThread(long millis) throws InterruptedException {
+        long end = System.currentTimeMillis() + millis;
+        for (long left = millis; left > 0; left = end - System.currentTimeMillis()) {
+            Runnable task = mainThread.poll(left, TimeUnit.MILLISECONDS);
+            if (task != null) {
+                task.run();
+            }
+        }
+    }
+
+    private static ZegoCallMessage received(int actionType, Long seq, Integer wireVersion) {
+        ZegoCallMessage message = new ZegoCallMessage();
+        message.actionType = actionType;
+        message.target = Collections.singletonList("a");
+        message.content = new ZegoCallMessage.ContentBean();
+        message.content.userInfo = new ZegoCallMessage.UserInfoBean("b", "B");
+        message.seq = seq;
+        message.wireVersion = wireVersion;
+        return message;
+    }
+
+    private static ZegoCallMessage ack(long seq) {
+        return received(ZegoCallMessage.ACK, seq, 2);
+    }
+}
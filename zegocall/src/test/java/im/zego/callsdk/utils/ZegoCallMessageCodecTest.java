@@ -0,0 +1,160 @@
+package im.zego.callsdk.utils;
+
+import com.google.gson.Gson;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import im.zego.callsdk.model.ZegoCallMessage;
+import im.zego.callsdk.model.ZegoCallMessage.ContentBean;
+import im.zego.callsdk.model.ZegoCallMessage.UserInfoBean;
+import im.zego.callsdk.model.ZegoCallType;
+import im.zego.callsdk.model.ZegoCancelType;
+import im.zego.callsdk.model.ZegoResponseType;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ZegoCallMessageCodecTest {
+
+    // quotes, backslashes, control characters, non ASCII and a surrogate pair
+    private static final String[] TRICKY_STRINGS = {"", "123", "a\"b\\c", "tab\tnew\nline\u0001", "中文", "e\u0301",
+        "\uD83D\uDE00 smile", "</script>&"};
+
+    private final Gson gson = ZegoCodecRegistry.gson();
+
+    @Test
+    public void encode_isReadByGson() {
+        for (ZegoCallMessage message : messages()) {
+            byte[] bytes = ZegoCallMessageCodec.encode(message);
+            ZegoCallMessage parsed = gson.fromJson(new String(bytes, StandardCharsets.UTF_8), ZegoCallMessage.class);
+            assertMessageEquals(message, parsed);
+        }
+    }
+
+    @Test
+    public void decode_readsGson() {
+        for (ZegoCallMessage message : messages()) {
+            byte[] bytes = gson.toJson(message).getBytes(StandardCharsets.UTF_8);
+            assertMessageEquals(message, ZegoCallMessageCodec.decode(bytes));
+        }
+    }
+
+    @Test
+    public void decodeBinary_roundTrips() {
+        for (ZegoCallMessage message : messages()) {
+            ZegoCallMessage decoded = ZegoCallMessageCodec.decode(ZegoCallMessageCodec.encodeBinary(message));
+            // the header carries the wire version
+            decoded.wireVersion = message.wireVersion;
+            assertMessageEquals(message, decoded);
+        }
+    }
+
+    @Test
+    public void decode_skipsUnknownFields() {
+        String json = "{\"future\":{\"a\":[1,2,{\"b\":null}],\"c\":\"}\\\"\"},\"action_type\":1,"
+            + "\"target\":[\"b\"],\"content\":{\"user_info\":{\"id\":\"a\",\"name\":\"A\",\"avatar\":\"x\"},"
+            + "\"call_type\":2,\"extra\":true},\"seq\":12,\"wire_version\":9,\"more\":-1.5e3}";
+        ZegoCallMessage message = ZegoCallMessageCodec.decode(json.getBytes(StandardCharsets.UTF_8));
+        assertMessageEquals(gson.fromJson(json, ZegoCallMessage.class), message);
+        assertEquals(ZegoCallMessage.CALL, ZegoCallMessageCodec.peekAction(json.getBytes(StandardCharsets.UTF_8), "b"));
+    }
+
+    @Test
+    public void decode_rejectsTruncatedInput() {
+        for (ZegoCallMessage message : messages()) {
+            byte[][] forms = {ZegoCallMessageCodec.encode(message), ZegoCallMessageCodec.encodeBinary(message)};
+            for (byte[] bytes : forms) {
+                for (int length = 0; length < bytes.length; length++) {
+                    byte[] truncated = Arrays.copyOf(bytes, length);
+                    assertNull(new String(truncated, StandardCharsets.UTF_8), ZegoCallMessageCodec.decode(truncated));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void decode_rejectsGarbage() {
+        String[] garbage = {"", "null", "[]", "{", "}", "{\"action_type\":}", "{\"action_type\":1,,}",
+            "{\"target\":[\"a\"", "{\"seq\":1x}", "{\"content\":{\"user_info\":{\"id\":\"\\u12\"}}}", "\u00c5\u0001"};
+        for (String json : garbage) {
+            byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+            assertNull(json, ZegoCallMessageCodec.decode(bytes));
+            assertEquals(json, ZegoCallMessageCodec.NOT_ADDRESSED, ZegoCallMessageCodec.peekAction(bytes, "a"));
+        }
+        assertNull(ZegoCallMessageCodec.decode(null));
+        // a binary header of a version that does not exist yet
+        assertNull(ZegoCallMessageCodec.decode(new byte[]{(byte) 0xcf, 2, 0}));
+    }
+
+    @Test
+    public void peekAction_checksTheTarget() {
+        ZegoCallMessageCodec.Template template = new ZegoCallMessageCodec.Template("a", "A");
+        byte[][] forms = {template.call("b", ZegoCallType.Voice, 0), template.call("b", ZegoCallType.Voice, 2)};
+        for (byte[] bytes : forms) {
+            assertEquals(ZegoCallMessage.CALL, ZegoCallMessageCodec.peekAction(bytes, "b"));
+            assertEquals(ZegoCallMessageCodec.NOT_ADDRESSED, ZegoCallMessageCodec.peekAction(bytes, "c"));
+        }
+    }
+
+    @Test
+    public void template_matchesEncode() {
+        for (String userID : TRICKY_STRINGS) {
+            ZegoCallMessageCodec.Template template = new ZegoCallMessageCodec.Template(userID, userID + " name");
+            for (int wireVersion = 0; wireVersion <= ZegoCallMessageCodec.WIRE_VERSION; wireVersion++) {
+                ZegoCallMessage message = message(ZegoCallMessage.CANCEL_CALL, userID, "t");
+                message.content.cancelType = ZegoCancelType.TIMEOUT;
+                message.seq = 42L;
+                message.wireVersion = ZegoCallMessageCodec.WIRE_VERSION;
+                assertArrayEquals(ZegoCallMessageCodec.encode(message, wireVersion),
+                    template.cancel("t", ZegoCancelType.TIMEOUT, 42, wireVersion));
+            }
+        }
+    }
+
+    private static ZegoCallMessage[] messages() {
+        ZegoCallMessage[] messages = new ZegoCallMessage[TRICKY_STRINGS.length * 3];
+        int i = 0;
+        for (String text : TRICKY_STRINGS) {
+            ZegoCallMessage call = message(ZegoCallMessage.CALL, text, text + "-target");
+            call.content.callType = ZegoCallType.Video;
+            call.seq = 1650000000000L;
+            call.wireVersion = ZegoCallMessageCodec.WIRE_VERSION;
+            messages[i++] = call;
+            ZegoCallMessage response = message(ZegoCallMessage.RESPONSE_CALL, text, "b");
+            response.content.responseType = ZegoResponseType.Reject;
+            messages[i++] = response;
+            ZegoCallMessage cancel = message(ZegoCallMessage.CANCEL_CALL, "a", text);
+            cancel.content.cancelType = ZegoCancelType.INTENT;
+            cancel.content.userInfo.userName = null;
+            cancel.seq = 0L;
+            messages[i++] = cancel;
+        }
+        return messages;
+    }
+
+    private static ZegoCallMessage message(int actionType, String userID, String target) {
+        ZegoCallMessage message = new ZegoCallMessage();
+        message.actionType = actionType;
+        message.target = Collections.singletonList(target);
+        message.content = new ContentBean();
+        message.content.userInfo = new UserInfoBean(userID, userID + " name");
+        return message;
+    }
+
+    private static void assertMessageEquals(ZegoCallMessage expected, ZegoCallMessage actual) {
+        assertEquals(expected.actionType, actual.actionType);
+        assertEquals(expected.target, actual.target);
+        assertEquals(expected.seq, actual.seq);
+        assertEquals(expected.wireVersion, actual.wireVersion);
+        assertEquals(expected.content.userInfo.userID, actual.content.userInfo.userID);
+        assertEquals(expected.content.userInfo.userName, actual.content.userInfo.userName);
+        assertEquals(expected.content.callType, actual.content.callType);
+        assertEquals(expected.content.cancelType, actual.content.cancelType);
+        assertEquals(expected.content.responseType, actual.content.responseType);
+    }
+}
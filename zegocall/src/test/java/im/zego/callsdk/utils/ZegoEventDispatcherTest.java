@@ -0,0 +1,108 @@
+package im.zego.callsdk.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+
+import im.zego.callsdk.utils.ZegoEventDispatcher.Overflow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ZegoEventDispatcherTest {
+
+    // the tasks handed to the consumer, run by the test
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private final List<String> delivered = new ArrayList<>();
+
+    @Test
+    public void post_deliversInOrderInBatches() {
+        ZegoEventDispatcher dispatcher = new ZegoEventDispatcher(8, 2, Overflow.DROP_OLDEST, tasks::add);
+        for (int i = 0; i < 5; i++) {
+            dispatcher.post(event(String.valueOf(i)));
+        }
+        assertEquals(1, tasks.size());
+        tasks.poll().run();
+        assertEquals(Arrays.asList("0", "1"), delivered);
+        // the rest in a later task
+        assertEquals(1, tasks.size());
+        runAll();
+        assertEquals(Arrays.asList("0", "1", "2", "3", "4"), delivered);
+        assertEquals(0, dispatcher.getPendingCount());
+    }
+
+    @Test
+    public void post_coalescesKeyedEventsInPlace() {
+        ZegoEventDispatcher dispatcher = new ZegoEventDispatcher(8, 8, Overflow.DROP_OLDEST, tasks::add);
+        dispatcher.post("quality:a", event("a1"));
+        dispatcher.post(event("x"));
+        dispatcher.post("quality:a", event("a2"));
+        dispatcher.post("quality:b", event("b1"));
+        assertEquals(3, dispatcher.getPendingCount());
+        runAll();
+        assertEquals(Arrays.asList("a2", "x", "b1"), delivered);
+
+        // a key delivered already is posted anew
+        dispatcher.post("quality:a", event("a3"));
+        runAll();
+        assertEquals(Arrays.asList("a2", "x", "b1", "a3"), delivered);
+    }
+
+    @Test
+    public void overflow_dropsOldestKeyedEventOnly() {
+        ZegoEventDispatcher dispatcher = new ZegoEventDispatcher(2, 4, Overflow.DROP_OLDEST, tasks::add);
+        dispatcher.post(event("call"));
+        dispatcher.post("k1", event("k1"));
+        dispatcher.post(event("cancel"));
+        dispatcher.post("k2", event("k2"));
+        dispatcher.post("k3", event("k3"));
+        // the ring grew for the control events, only k1 went
+        dispatcher.post(event("response"));
+        dispatcher.post(event("ack"));
+        assertEquals(1, dispatcher.getDroppedCount());
+        assertEquals(6, dispatcher.getPendingCount());
+        runAll();
+        assertEquals(Arrays.asList("call", "cancel", "k2", "k3", "response", "ack"), delivered);
+    }
+
+    @Test
+    public void overflow_dropsNewestKeyedEvent() {
+        ZegoEventDispatcher dispatcher = new ZegoEventDispatcher(1, 4, Overflow.DROP_NEWEST, tasks::add);
+        assertTrue(dispatcher.post("k1", event("k1")));
+        assertFalse(dispatcher.post("k2", event("k2")));
+        // the pending key is still replaced in place
+        assertTrue(dispatcher.post("k1", event("k1'")));
+        assertTrue(dispatcher.post(event("control")));
+        runAll();
+        assertEquals(Arrays.asList("k1'", "control"), delivered);
+        assertEquals(1, dispatcher.getDroppedCount());
+    }
+
+    @Test
+    public void post_neverDropsUnkeyedEvents() {
+        ZegoEventDispatcher dispatcher = new ZegoEventDispatcher(4, 16, Overflow.DROP_OLDEST, tasks::add);
+        for (int i = 0; i < 1000; i++) {
+            dispatcher.post(event(String.valueOf(i)));
+        }
+        assertEquals(1000, dispatcher.getPendingCount());
+        runAll();
+        assertEquals(1000, delivered.size());
+        assertEquals("999", delivered.get(999));
+        assertEquals(0, dispatcher.getDroppedCount());
+    }
+
+    private Runnable event(String name) {
+        return () -> delivered.add(name);
+    }
+
+    private void runAll() {
+        while (!tasks.isEmpty()) {
+            tasks.poll().run();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package im.zego.callsdk.utils;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ZegoTimerWheelTest {
+
+    private static final long TICK_MILLIS = 10;
+    private static final int WHEEL_SIZE = 8;
+
+    // the expired timeouts handed to the consumer, run by the test
+    private final BlockingQueue<Runnable> expired = new LinkedBlockingQueue<>();
+    private final ZegoTimerWheel wheel = new ZegoTimerWheel(TICK_MILLIS, WHEEL_SIZE, expired::add);
+    private final List<String> ran = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        wheel.stop();
+    }
+
+    @Test
+    public void timeout_runsAfterItsDelay() throws InterruptedException {
+        long start = System.nanoTime();
+        ZegoTimerWheel.Timeout timeout = wheel.newTimeout(task("a"), 50);
+        runNext(1000);
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+        assertTrue("ran after " + elapsedMillis + "ms", elapsedMillis >= 50);
+        assertEquals("[a]", ran.toString());
+        assertTrue(timeout.isExpired());
+        assertEquals(0, wheel.getPendingCount());
+    }
+
+    @Test
+    public void timeouts_runInDeadlineOrder() throws InterruptedException {
+        wheel.newTimeout(task("late"), 60);
+        wheel.newTimeout(task("early"), 20);
+        runNext(1000);
+        runNext(1000);
+        assertEquals("[early, late]", ran.toString());
+    }
+
+    @Test
+    public void cancel_beforeItRuns() throws InterruptedException {
+        ZegoTimerWheel.Timeout canceled = wheel.newTimeout(task("canceled"), 20);
+        wheel.newTimeout(task("kept"), 40);
+        assertTrue(canceled.cancel());
+        assertFalse(canceled.cancel());
+        assertTrue(canceled.isCanceled());
+        assertEquals(1, wheel.getPendingCount());
+        runNext(1000);
+        assertNull(expired.poll(100, TimeUnit.MILLISECONDS));
+        assertEquals("[kept]", ran.toString());
+    }
+
+    @Test
+    public void cancel_afterTheTickStillWins() throws InterruptedException {
+        ZegoTimerWheel.Timeout timeout = wheel.newTimeout(task("a"), 10);
+        Runnable handedOver = expired.poll(1000, TimeUnit.MILLISECONDS);
+        // due, but canceled on the consumer before it got to run
+        assertTrue(timeout.cancel());
+        handedOver.run();
+        assertTrue(ran.isEmpty());
+    }
+
+    @Test
+    public void timeout_waitsForItsRound() throws InterruptedException {
+        // two and a half turns of the wheel, the bucket is looked at twice before
+        long delay = TICK_MILLIS * WHEEL_SIZE * 5 / 2;
+        long start = System.nanoTime();
+        wheel.newTimeout(task("rounds"), delay);
+        wheel.newTimeout(task("first turn"), TICK_MILLIS * 2);
+        runNext(1000);
+        assertEquals("[first turn]", ran.toString());
+        runNext(2000);
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+        assertTrue("ran after " + elapsedMillis + "ms", elapsedMillis >= delay);
+        assertEquals("[first turn, rounds]", ran.toString());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void stop_rejectsNewTimeouts() {
+        ZegoTimerWheel.Timeout timeout = wheel.newTimeout(task("a"), 1000);
+        wheel.stop();
+        assertEquals(0, wheel.getPendingCount());
+        assertFalse(timeout.isExpired());
+        wheel.newTimeout(task("b"), 10);
+    }
+
+    private Runnable task(String name) {
+        return () -> ran.add(name);
+    }
+
+    private void runNext(long timeoutMillis) throws InterruptedException {
+        Runnable task = expired.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+        if (task == null) {
+            throw new AssertionError("no timeout ran in " + timeoutMillis + "ms");
+        }
+        task.run();
+    }
+}